@@ -0,0 +1,140 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試Base64編碼和解碼的效能，單一執行緒。</p>
+ *
+ * <p>
+ * 在有java.util.Base64的執行環境上，MagicCrypt的Base64會交給java.util.Base64處理；Base64ScalarBenchmark關閉這個功能，測試內建的實作。jdk開頭的方法直接使用java.util.Base64作為比較基準。要比較不同JDK版本的差異，可以用「-jvm」指定不同的java執行檔分別執行。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Base64Benchmark {
+
+    // -----物件變數-----
+    /**
+     * 原始資料的資料量(位元組)。
+     */
+    @Param({"16", "64", "4096", "1048576"})
+    public int size;
+    private byte[] data;
+    private byte[] encoded;
+    private byte[] urlEncoded;
+    private byte[] mimeEncoded;
+    private byte[] buffer;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() {
+        data = Payloads.bytes(size);
+        encoded = Base64.getEncoder().encode(data);
+        urlEncoded = Base64.getUrlEncoder().encode(data);
+        mimeEncoded = Base64.getMimeEncoder().encode(data);
+        buffer = new byte[8192];
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return Base64.getEncoder().encode(data);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base64.getDecoder().decode(encoded);
+    }
+
+    @Benchmark
+    public String encodeToString() {
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    @Benchmark
+    public byte[] urlEncode() {
+        return Base64.getUrlEncoder().encode(data);
+    }
+
+    @Benchmark
+    public byte[] urlDecode() {
+        return Base64.getUrlDecoder().decode(urlEncoded);
+    }
+
+    @Benchmark
+    public byte[] mimeEncode() {
+        return Base64.getMimeEncoder().encode(data);
+    }
+
+    @Benchmark
+    public byte[] mimeDecode() {
+        return Base64.getMimeDecoder().decode(mimeEncoded);
+    }
+
+    @Benchmark
+    public void wrapEncode() throws IOException {
+        try (final OutputStream out = Base64.getEncoder().wrap(Payloads.discard())) {
+            out.write(data);
+        }
+    }
+
+    @Benchmark
+    public int wrapDecode() throws IOException {
+        int sum = 0;
+        try (final InputStream in = Base64.getDecoder().wrap(new ByteArrayInputStream(encoded))) {
+            int c;
+            while ((c = in.read(buffer, 0, buffer.length)) > 0) {
+                sum += c;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public byte[] jdkEncode() {
+        return java.util.Base64.getEncoder().encode(data);
+    }
+
+    @Benchmark
+    public byte[] jdkDecode() {
+        return java.util.Base64.getDecoder().decode(encoded);
+    }
+}
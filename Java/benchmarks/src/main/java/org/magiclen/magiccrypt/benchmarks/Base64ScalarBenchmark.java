@@ -0,0 +1,29 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * 和Base64Benchmark相同，但是關閉交給java.util.Base64處理的功能，測試MagicCrypt內建的Base64實作。
+ *
+ * @author Magic Len
+ */
+@Fork(value = 1, jvmArgsAppend = "-Dorg.magiclen.magiccrypt.base64.platform=false")
+public class Base64ScalarBenchmark extends Base64Benchmark {
+}
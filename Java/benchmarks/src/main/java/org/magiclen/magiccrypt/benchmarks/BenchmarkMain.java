@@ -0,0 +1,62 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.magiclen.magiccrypt.Version;
+
+/**
+ * <p>
+ * 執行效能測試的進入點，參數和JMH相同。</p>
+ *
+ * <p>
+ * 沒有用「-rf」指定結果格式時，結果會以JSON格式寫入magiccrypt-版本.json，方便比較不同版本的結果。</p>
+ *
+ * @author Magic Len
+ */
+public final class BenchmarkMain {
+
+    // -----類別方法-----
+    /**
+     * 執行效能測試。
+     *
+     * @param args 傳入JMH的參數
+     * @throws Exception 執行失敗時，會拋出例外
+     */
+    public static void main(final String[] args) throws Exception {
+        final List<String> list = new ArrayList<>(Arrays.asList(args));
+        if (!list.contains("-rf")) {
+            if (!list.contains("-rff")) {
+                list.add(0, "magiccrypt-" + Version.getVersion() + ".json");
+                list.add(0, "-rff");
+            }
+            list.add(0, "json");
+            list.add(0, "-rf");
+        }
+        org.openjdk.jmh.Main.main(list.toArray(new String[list.size()]));
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private BenchmarkMain() {
+    }
+}
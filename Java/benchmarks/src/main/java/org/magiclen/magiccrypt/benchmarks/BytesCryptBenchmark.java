@@ -0,0 +1,108 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.MagicCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試MagicCrypt加/解密位元組陣列的效能，單一執行緒。</p>
+ *
+ * <p>
+ * Into結尾的方法將結果寫入預先配置的陣列，不會產生新的物件。資料必須完整存在記憶體中，因此只測到16MB，更大的資料請參考StreamCryptBenchmark。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BytesCryptBenchmark {
+
+    // -----類別類別-----
+    /**
+     * 每個執行緒各自的輸出陣列。
+     */
+    @State(Scope.Thread)
+    public static class Output {
+
+        byte[] array;
+
+        @Setup
+        public void setup(final BytesCryptBenchmark benchmark) {
+            array = new byte[benchmark.mc.getOutputSize(benchmark.size)];
+        }
+    }
+
+    // -----物件變數-----
+    /**
+     * 密鑰長度。
+     */
+    @Param({"64", "128", "192", "256"})
+    public int bit;
+    /**
+     * 明文的資料量(位元組)。
+     */
+    @Param({"16", "1024", "65536", "1048576", "16777216"})
+    public int size;
+    private MagicCrypt mc;
+    private byte[] plain;
+    private byte[] encrypted;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() {
+        mc = new MagicCrypt(Payloads.KEY, bit);
+        plain = Payloads.bytes(size);
+        encrypted = mc.encrypt(plain);
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return mc.encrypt(plain);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return mc.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public int encryptInto(final Output output) {
+        return mc.encrypt(plain, 0, plain.length, output.array, 0);
+    }
+
+    @Benchmark
+    public int decryptInto(final Output output) {
+        return mc.decrypt(encrypted, 0, encrypted.length, output.array, 0);
+    }
+}
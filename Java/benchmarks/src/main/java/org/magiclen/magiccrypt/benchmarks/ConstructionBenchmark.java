@@ -0,0 +1,94 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.MagicCrypt;
+import org.magiclen.magiccrypt.MagicCryptRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試建立MagicCrypt物件的速度，包含密鑰和IV的雜湊。</p>
+ *
+ * <p>
+ * registry方法從MagicCryptRegistry取得已經建立好的物件，作為每次都建立新物件的比較基準。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConstructionBenchmark {
+
+    // -----物件變數-----
+    /**
+     * 密鑰長度。
+     */
+    @Param({"64", "128", "192", "256"})
+    public int bit;
+    private byte[] keyBytes;
+    private byte[] ivBytes;
+    private char[] keyChars;
+    private char[] ivChars;
+    private MagicCryptRegistry registry;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() {
+        keyBytes = Payloads.KEY.getBytes(StandardCharsets.UTF_8);
+        ivBytes = Payloads.IV.getBytes(StandardCharsets.UTF_8);
+        keyChars = Payloads.KEY.toCharArray();
+        ivChars = Payloads.IV.toCharArray();
+        registry = new MagicCryptRegistry();
+    }
+
+    @Benchmark
+    public MagicCrypt fromString() {
+        return new MagicCrypt(Payloads.KEY, bit, Payloads.IV);
+    }
+
+    @Benchmark
+    public MagicCrypt fromBytes() {
+        return new MagicCrypt(keyBytes, bit, ivBytes);
+    }
+
+    @Benchmark
+    public MagicCrypt fromChars() {
+        return new MagicCrypt(keyChars, bit, ivChars);
+    }
+
+    @Benchmark
+    public MagicCrypt registry() {
+        return registry.get(Payloads.KEY, bit, Payloads.IV);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.MagicCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試多個執行緒共用同一個MagicCrypt物件時，吞吐量隨執行緒數量增加的情形。</p>
+ *
+ * <p>
+ * threads開頭的方法分別使用1、2、4、8個執行緒和所有的處理器同時加密。locked開頭的方法在共用的物件上加鎖，也就是Cipher物件還無法共用時的使用方式，作為比較基準。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+
+    // -----物件變數-----
+    /**
+     * 密鑰長度。
+     */
+    @Param({"128", "256"})
+    public int bit;
+    /**
+     * 明文的資料量(位元組)。
+     */
+    @Param({"64"})
+    public int size;
+    private MagicCrypt mc;
+    private byte[] data;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() {
+        mc = new MagicCrypt(Payloads.KEY, bit);
+        data = Payloads.bytes(size);
+    }
+
+    /**
+     * 在共用的物件上加鎖後加密。
+     *
+     * @return 傳回加密後的資料
+     */
+    private byte[] encryptLocked() {
+        synchronized (mc) {
+            return mc.encrypt(data);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte[] threads1() {
+        return mc.encrypt(data);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public byte[] threads2() {
+        return mc.encrypt(data);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] threads4() {
+        return mc.encrypt(data);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public byte[] threads8() {
+        return mc.encrypt(data);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] threadsMax() {
+        return mc.encrypt(data);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] locked4() {
+        return encryptLocked();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] lockedMax() {
+        return encryptLocked();
+    }
+}
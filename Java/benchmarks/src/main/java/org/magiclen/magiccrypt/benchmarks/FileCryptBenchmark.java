@@ -0,0 +1,154 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.MagicCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試MagicCrypt加/解密檔案的效能，單一執行緒。</p>
+ *
+ * <p>
+ * encryptFile和decryptFile使用File的多載，encryptPath和decryptPath使用Path的多載，兩者都透過FileChannel處理。encryptStream和decryptStream是MagicCrypt 2.0.3處理檔案的方式：用BufferedInputStream和BufferedOutputStream包裝檔案，再交給資料流的多載。Segmented結尾的方法使用可以平行處理的分段格式。</p>
+ *
+ * <p>
+ * 測試開始前會建立明文、密文和分段格式密文的暫存檔案，4GB的資料量需要大約16GB的磁碟空間，可以用「-p size=...」只測較小的資料量。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileCryptBenchmark {
+
+    // -----類別類別-----
+    /**
+     * 每個執行緒各自的輸出檔案。
+     */
+    @State(Scope.Thread)
+    public static class Output {
+
+        File file;
+
+        @Setup
+        public void setup() throws IOException {
+            file = Payloads.tempFile("output");
+        }
+
+        @TearDown
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    // -----物件變數-----
+    /**
+     * 密鑰長度。
+     */
+    @Param({"64", "128", "192", "256"})
+    public int bit;
+    /**
+     * 明文的資料量(位元組)。
+     */
+    @Param({"16", "1048576", "104857600", "1073741824", "4294967296"})
+    public long size;
+    private MagicCrypt mc;
+    private File plain;
+    private File encrypted;
+    private File segmented;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() throws IOException {
+        mc = new MagicCrypt(Payloads.KEY, bit);
+        plain = Payloads.tempFile("plain", size);
+        encrypted = Payloads.tempFile("encrypted");
+        mc.encrypt(plain, encrypted);
+        segmented = Payloads.tempFile("segmented");
+        mc.encryptSegmented(plain.toPath(), segmented.toPath());
+    }
+
+    @TearDown
+    public void tearDown() {
+        plain.delete();
+        encrypted.delete();
+        segmented.delete();
+    }
+
+    @Benchmark
+    public void encryptFile(final Output output) throws IOException {
+        mc.encrypt(plain, output.file);
+    }
+
+    @Benchmark
+    public void decryptFile(final Output output) throws IOException {
+        mc.decrypt(encrypted, output.file);
+    }
+
+    @Benchmark
+    public void encryptPath(final Output output) throws IOException {
+        mc.encrypt(plain.toPath(), output.file.toPath());
+    }
+
+    @Benchmark
+    public void decryptPath(final Output output) throws IOException {
+        mc.decrypt(encrypted.toPath(), output.file.toPath());
+    }
+
+    @Benchmark
+    public void encryptStream(final Output output) throws IOException {
+        mc.encrypt(new BufferedInputStream(new FileInputStream(plain)), new BufferedOutputStream(new FileOutputStream(output.file)));
+    }
+
+    @Benchmark
+    public void decryptStream(final Output output) throws IOException {
+        mc.decrypt(new BufferedInputStream(new FileInputStream(encrypted)), new BufferedOutputStream(new FileOutputStream(output.file)));
+    }
+
+    @Benchmark
+    public void encryptSegmented(final Output output) throws IOException {
+        mc.encryptSegmented(plain.toPath(), output.file.toPath());
+    }
+
+    @Benchmark
+    public void decryptSegmented(final Output output) throws IOException {
+        mc.decryptSegmented(segmented.toPath(), output.file.toPath());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.CRC64;
+import org.magiclen.magiccrypt.Tiger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試批次雜湊大量短資料的效能。</p>
+ *
+ * <p>
+ * each結尾的方法逐筆呼叫getHash，作為hashAll的比較基準。Parallel結尾的方法將批次交給執行緒池平行處理。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashAllBenchmark {
+
+    // -----物件變數-----
+    /**
+     * 資料筆數。
+     */
+    @Param({"1000", "100000"})
+    public int count;
+    /**
+     * 每筆資料的資料量(位元組)。
+     */
+    @Param({"32"})
+    public int length;
+    private byte[][] data;
+    private ExecutorService executor;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() {
+        final Random random = new Random(count);
+        data = new byte[count][length];
+        for (final byte[] item : data) {
+            random.nextBytes(item);
+        }
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public byte[] crc64HashAll() {
+        return CRC64.hashAll(data);
+    }
+
+    @Benchmark
+    public byte[] crc64HashAllParallel() {
+        return CRC64.hashAll(data, executor);
+    }
+
+    @Benchmark
+    public byte[][] crc64Each() {
+        final byte[][] results = new byte[data.length][];
+        for (int i = 0; i < data.length; ++i) {
+            results[i] = CRC64.getHash(data[i]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public byte[] tigerHashAll() {
+        return Tiger.hashAll(data);
+    }
+
+    @Benchmark
+    public byte[] tigerHashAllParallel() {
+        return Tiger.hashAll(data, executor);
+    }
+
+    @Benchmark
+    public byte[][] tigerEach() {
+        final byte[][] results = new byte[data.length][];
+        for (int i = 0; i < data.length; ++i) {
+            results[i] = Tiger.getHash(data[i]);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.CRC64;
+import org.magiclen.magiccrypt.Tiger;
+import org.magiclen.magiccrypt.TigerDigest;
+import org.magiclen.magiccrypt.TigerTree;
+import org.magiclen.magiccrypt.benchmarks.legacy.LegacyHashes;
+import org.magiclen.magiccrypt.benchmarks.legacy.LegacyTiger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試CRC64和Tiger雜湊的效能，單一執行緒。</p>
+ *
+ * <p>
+ * legacy開頭的方法使用MagicCrypt 2.0.3的實作：CRC64每次查表只處理一個位元組，Tiger則是原本的AwaruaTiger。crc64Parallel和tigerTree會使用預設的ForkJoinPool平行計算。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashBenchmark {
+
+    // -----類別類別-----
+    /**
+     * 每個執行緒各自的雜湊物件。
+     */
+    @State(Scope.Thread)
+    public static class Hashers {
+
+        final CRC64 crc64 = new CRC64();
+        final TigerDigest tiger = new TigerDigest();
+    }
+
+    // -----物件變數-----
+    /**
+     * 資料量(位元組)。
+     */
+    @Param({"16", "1024", "65536", "1048576", "16777216"})
+    public int size;
+    private byte[] data;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() {
+        data = Payloads.bytes(size);
+    }
+
+    @Benchmark
+    public byte[] crc64GetHash() {
+        return CRC64.getHash(data);
+    }
+
+    @Benchmark
+    public long crc64Checksum(final Hashers hashers) {
+        final CRC64 crc64 = hashers.crc64;
+        crc64.reset();
+        crc64.update(data, 0, data.length);
+        return crc64.getValue();
+    }
+
+    @Benchmark
+    public long crc64Parallel() {
+        return CRC64.checksumParallel(ByteBuffer.wrap(data));
+    }
+
+    @Benchmark
+    public byte[] legacyCrc64() {
+        return LegacyHashes.crc64(data);
+    }
+
+    @Benchmark
+    public byte[] tigerGetHash() {
+        return Tiger.getHash(data);
+    }
+
+    @Benchmark
+    public byte[] tigerDigest(final Hashers hashers) {
+        return hashers.tiger.digest(data);
+    }
+
+    @Benchmark
+    public byte[] tigerTree() {
+        return TigerTree.build(data).getRoot();
+    }
+
+    @Benchmark
+    public byte[] legacyTiger() {
+        return LegacyTiger.getHash(data);
+    }
+}
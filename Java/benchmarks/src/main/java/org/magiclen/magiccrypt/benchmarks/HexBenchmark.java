@@ -0,0 +1,110 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.Hex;
+import org.magiclen.magiccrypt.MagicCrypt;
+import org.magiclen.magiccrypt.benchmarks.legacy.LegacyHashes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試16進制編碼和解碼的效能，單一執行緒。</p>
+ *
+ * <p>
+ * legacyByteToHexString是MagicCrypt 2.0.3的byteToHexString，每個位元組都經過StringBuilder和hexDigit。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HexBenchmark {
+
+    // -----類別類別-----
+    /**
+     * 每個執行緒各自的輸出陣列。
+     */
+    @State(Scope.Thread)
+    public static class Output {
+
+        char[] chars;
+        byte[] bytes;
+
+        @Setup
+        public void setup(final HexBenchmark benchmark) {
+            chars = new char[benchmark.size * 2];
+            bytes = new byte[benchmark.size];
+        }
+    }
+
+    // -----物件變數-----
+    /**
+     * 原始資料的資料量(位元組)。
+     */
+    @Param({"16", "1024", "65536", "1048576"})
+    public int size;
+    private byte[] data;
+    private String hex;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() {
+        data = Payloads.bytes(size);
+        hex = Hex.encode(data);
+    }
+
+    @Benchmark
+    public String byteToHexString() {
+        return MagicCrypt.byteToHexString(data);
+    }
+
+    @Benchmark
+    public String legacyByteToHexString() {
+        return LegacyHashes.byteToHexString(data);
+    }
+
+    @Benchmark
+    public int encodeInto(final Output output) {
+        return Hex.encode(data, 0, data.length, output.chars, 0);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Hex.decode(hex);
+    }
+
+    @Benchmark
+    public int decodeInto(final Output output) {
+        return Hex.decode(hex, 0, hex.length(), output.bytes, 0);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * 產生測試用的資料。資料由固定的種子產生，每次執行的內容都相同。
+ *
+ * @author Magic Len
+ */
+final class Payloads {
+
+    // -----類別類別-----
+    /**
+     * 資料流重複輸出的資料，第一次使用時才會產生。
+     */
+    private static final class Pattern {
+
+        static final byte[] DATA = bytes(PATTERN_SIZE);
+    }
+
+    /**
+     * 重複輸出同一段資料的輸入資料流，不論資料量多大都不會佔用額外的記憶體。
+     */
+    private static final class RepeatingInputStream extends InputStream {
+
+        /**
+         * 重複輸出的資料。
+         */
+        private final byte[] pattern;
+        /**
+         * 剩餘的資料量(位元組)。
+         */
+        private long remaining;
+        /**
+         * 目前在重複資料中的位置。
+         */
+        private int position;
+
+        /**
+         * 建構子。
+         *
+         * @param pattern 傳入重複輸出的資料
+         * @param size 傳入資料量(位元組)
+         */
+        RepeatingInputStream(final byte[] pattern, final long size) {
+            this.pattern = pattern;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            --remaining;
+            final int b = pattern[position] & 0xFF;
+            position = (position + 1) % pattern.length;
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int n = Math.min(Math.min(len, pattern.length - position), (int) Math.min(remaining, Integer.MAX_VALUE));
+            System.arraycopy(pattern, position, b, off, n);
+            position = (position + n) % pattern.length;
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * 丟棄所有資料的輸出資料流，只記錄寫入的資料量。
+     */
+    private static final class NullOutputStream extends OutputStream {
+
+        /**
+         * 寫入的資料量(位元組)。
+         */
+        private long count;
+
+        @Override
+        public void write(final int b) {
+            ++count;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+    }
+
+    // -----類別常數-----
+    /**
+     * 測試用的密鑰。
+     */
+    static final String KEY = "magickey";
+    /**
+     * 測試用的IV。
+     */
+    static final String IV = "magiciv";
+    /**
+     * 亂數種子。
+     */
+    private static final long SEED = 0x4D43L;
+    /**
+     * 資料流重複輸出的資料大小(位元組)。
+     */
+    private static final int PATTERN_SIZE = 1 << 16;
+    /**
+     * 產生文字時使用的字元。
+     */
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    // -----類別方法-----
+    /**
+     * 產生資料。
+     *
+     * @param size 傳入資料量(位元組)
+     * @return 傳回資料
+     */
+    static byte[] bytes(final int size) {
+        final byte[] data = new byte[size];
+        new Random(SEED).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 產生ASCII文字，UTF-8編碼後的長度和字元數相同。
+     *
+     * @param size 傳入字元數
+     * @return 傳回文字
+     */
+    static String text(final int size) {
+        final Random random = new Random(SEED);
+        final char[] chars = new char[size];
+        for (int i = 0; i < size; ++i) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 產生指定資料量的輸入資料流。
+     *
+     * @param size 傳入資料量(位元組)
+     * @return 傳回輸入資料流
+     */
+    static InputStream stream(final long size) {
+        return new RepeatingInputStream(Pattern.DATA, size);
+    }
+
+    /**
+     * 產生丟棄所有資料的輸出資料流。
+     *
+     * @return 傳回輸出資料流
+     */
+    static OutputStream discard() {
+        return new NullOutputStream();
+    }
+
+    /**
+     * 建立暫存檔案，程式結束時會被刪除。
+     *
+     * @param prefix 傳入檔名的開頭
+     * @return 傳回暫存檔案
+     * @throws IOException 無法建立檔案時，會拋出這個例外
+     */
+    static File tempFile(final String prefix) throws IOException {
+        final File file = File.createTempFile("magiccrypt-" + prefix, ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * 建立填滿資料的暫存檔案。
+     *
+     * @param prefix 傳入檔名的開頭
+     * @param size 傳入資料量(位元組)
+     * @return 傳回暫存檔案
+     * @throws IOException 無法寫入檔案時，會拋出這個例外
+     */
+    static File tempFile(final String prefix, final long size) throws IOException {
+        final File file = tempFile(prefix);
+        final byte[] buffer = new byte[1 << 20];
+        try (final InputStream in = stream(size); final OutputStream out = new FileOutputStream(file)) {
+            int c;
+            while ((c = in.read(buffer, 0, buffer.length)) > 0) {
+                out.write(buffer, 0, c);
+            }
+        }
+        return file;
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private Payloads() {
+    }
+}
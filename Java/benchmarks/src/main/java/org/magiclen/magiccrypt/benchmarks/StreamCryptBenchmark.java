@@ -0,0 +1,96 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.magiclen.magiccrypt.MagicCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * 測試MagicCrypt加/解密資料流的效能，單一執行緒。</p>
+ *
+ * <p>
+ * 加密時從不佔用記憶體的輸入資料流讀取明文，輸出的密文直接丟棄；解密時從預先加密好的暫存檔案讀取密文，因此資料量可以測到1GB。</p>
+ *
+ * @author Magic Len
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamCryptBenchmark {
+
+    // -----物件變數-----
+    /**
+     * 密鑰長度。
+     */
+    @Param({"64", "128", "192", "256"})
+    public int bit;
+    /**
+     * 明文的資料量(位元組)。
+     */
+    @Param({"16", "1048576", "104857600", "1073741824"})
+    public long size;
+    private MagicCrypt mc;
+    private File encrypted;
+
+    // -----物件方法-----
+    @Setup
+    public void setup() throws IOException {
+        mc = new MagicCrypt(Payloads.KEY, bit);
+        encrypted = Payloads.tempFile("stream");
+        try (final OutputStream out = new FileOutputStream(encrypted)) {
+            mc.encrypt(Payloads.stream(size), out);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        encrypted.delete();
+    }
+
+    @Benchmark
+    public void encrypt() throws IOException {
+        mc.encrypt(Payloads.stream(size), Payloads.discard());
+    }
+
+    @Benchmark
+    public void decrypt() throws IOException {
+        mc.decrypt(new BufferedInputStream(new FileInputStream(encrypted)), Payloads.discard());
+    }
+}
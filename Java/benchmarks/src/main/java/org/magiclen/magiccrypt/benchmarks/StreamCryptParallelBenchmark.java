@@ -0,0 +1,29 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * 和StreamCryptBenchmark相同，但是所有的執行緒共用同一個MagicCrypt物件，各自加/解密自己的資料流。
+ *
+ * @author Magic Len
+ */
+@Threads(Threads.MAX)
+public class StreamCryptParallelBenchmark extends StreamCryptBenchmark {
+}
@@ -0,0 +1,121 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.benchmarks.legacy;
+
+/**
+ * MagicCrypt 2.0.3的CRC64和byteToHexString，保留原本的寫法作為效能測試的比較基準。
+ *
+ * @author Magic Len
+ */
+public final class LegacyHashes {
+
+    // -----類別常數-----
+    private static final long POLY64REV = 0x42F0E1EBA9EA3693L;
+    private static final long[] LOOKUPTABLE = new long[256];
+
+    // -----類別初始-----
+    static {
+        final long mask1 = 1L << 63;
+        long mask2 = 1;
+        for (int i = 1; i < 64; ++i) {
+            mask2 = (mask2 << 1) + 1;
+        }
+        for (int i = 0; i < 256; ++i) {
+            long v = i;
+            for (int j = 0; j < 64; ++j) {
+                if ((v & mask1) == 0) {
+                    v = v << 1;
+                } else {
+                    v = v << 1;
+                    v = v ^ POLY64REV;
+                }
+            }
+            LOOKUPTABLE[i] = v & mask2;
+        }
+    }
+
+    // -----類別方法-----
+    /**
+     * 取得資料的CRC64雜湊值，每次查表只處理一個位元組。
+     *
+     * @param data 傳入要雜湊的資料
+     * @return 傳回雜湊後資料內容
+     */
+    public static byte[] crc64(final byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        long sum = ~0;
+        for (final byte b : data) {
+            final int lookupidx = (int) (((sum >>> 56) ^ b) & 0xff);
+            sum = (sum << 8) ^ LOOKUPTABLE[lookupidx];
+        }
+        sum = sum ^ ~0;
+        final byte[] crc64 = new byte[8];
+        crc64[0] = (byte) (sum >>> 56);
+        crc64[1] = (byte) ((sum << 8) >>> 56);
+        crc64[2] = (byte) ((sum << 16) >>> 56);
+        crc64[3] = (byte) ((sum << 24) >>> 56);
+        crc64[4] = (byte) ((sum << 32) >>> 56);
+        crc64[5] = (byte) ((sum << 40) >>> 56);
+        crc64[6] = (byte) ((sum << 48) >>> 56);
+        crc64[7] = (byte) ((sum << 56) >>> 56);
+        return crc64;
+    }
+
+    /**
+     * 講位元組陣列資料轉成16進制的字串，每個位元組都經過StringBuilder和hexDigit。
+     *
+     * @param data 傳入位元組陣列資料
+     * @return 傳回16進制的字串
+     */
+    public static String byteToHexString(final byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final int b : data) {
+            final int m = (b << 24) >>> 28;
+            final int l = (b << 28) >>> 28;
+            sb.append(hexDigit(m)).append(hexDigit(l));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 將16進制的單一位數轉成字元。
+     *
+     * @param digit 傳入整數，範圍在0~15之間
+     * @return 傳回代表整數的字元
+     */
+    private static char hexDigit(final int digit) {
+        if (digit >= 0 && digit <= 9) {
+            return (char) ('0' + digit);
+        } else if (digit >= 10 && digit <= 15) {
+            return (char) ('a' + digit - 10);
+        }
+        throw new RuntimeException("The hex digit is out of bounds.");
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private LegacyHashes() {
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+/**
+ * 可以在Java中快速進行加/解密。
+ */
+module org.magiclen.magiccrypt {
+    exports org.magiclen.magiccrypt;
+    exports org.magiclen.magiccrypt.lib;
+
+    provides java.security.Provider with org.magiclen.magiccrypt.MagicCryptProvider;
+}
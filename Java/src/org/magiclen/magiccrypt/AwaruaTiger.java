@@ -7,6 +7,8 @@
  */
 package org.magiclen.magiccrypt;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
@@ -25,7 +27,6 @@ class AwaruaTiger {
     private long b;
     private long c;
 
-    private long[] block;
     private byte[] buf;
 
     private long lLen;
@@ -140,90 +141,243 @@ class AwaruaTiger {
 
     public AwaruaTiger() {
         this.buf = new byte[64];
-        this.block = new long[8];
         this.Initialize();
     }
 
-    private void Compress() {
-        long aa = this.a;
-        long bb = this.b;
-        long cc = this.c;
-        long[] block = this.block;
-        this.RoundABC(block[0], 5);
-        this.RoundBCA(block[1], 5);
-        this.RoundCAB(block[2], 5);
-        this.RoundABC(block[3], 5);
-        this.RoundBCA(block[4], 5);
-        this.RoundCAB(block[5], 5);
-        this.RoundABC(block[6], 5);
-        this.RoundBCA(block[7], 5);
-        this.Schedule(block);
-        this.RoundCAB(block[0], 7);
-        this.RoundABC(block[1], 7);
-        this.RoundBCA(block[2], 7);
-        this.RoundCAB(block[3], 7);
-        this.RoundABC(block[4], 7);
-        this.RoundBCA(block[5], 7);
-        this.RoundCAB(block[6], 7);
-        this.RoundABC(block[7], 7);
-        this.Schedule(block);
-        this.RoundBCA(block[0], 9);
-        this.RoundCAB(block[1], 9);
-        this.RoundABC(block[2], 9);
-        this.RoundBCA(block[3], 9);
-        this.RoundCAB(block[4], 9);
-        this.RoundABC(block[5], 9);
-        this.RoundBCA(block[6], 9);
-        this.RoundCAB(block[7], 9);
-        this.a ^= aa;
-        this.b -= bb;
-        this.c += cc;
+    AwaruaTiger(AwaruaTiger other) {
+        this.a = other.a;
+        this.b = other.b;
+        this.c = other.c;
+        this.buf = other.buf.clone();
+        this.lLen = other.lLen;
+        this.nBufPos = other.nBufPos;
     }
 
-    private void HashCore(byte[] data, int nStart, int nSize) {
-        int nToCopy;
+    /**
+     * Compresses nBlocks consecutive 64-byte blocks read directly from data
+     * through a little-endian view. The chaining values stay in locals for
+     * the whole run and all three passes and both key schedules are unrolled.
+     */
+    private void Compress(byte[] data, int nStart, int nBlocks) {
+        long a = this.a;
+        long b = this.b;
+        long c = this.c;
+        ByteBuffer words = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        while (nBlocks-- > 0) {
+            long aa = a;
+            long bb = b;
+            long cc = c;
+            long x0 = words.getLong(nStart);
+            long x1 = words.getLong(nStart + 8);
+            long x2 = words.getLong(nStart + 16);
+            long x3 = words.getLong(nStart + 24);
+            long x4 = words.getLong(nStart + 32);
+            long x5 = words.getLong(nStart + 40);
+            long x6 = words.getLong(nStart + 48);
+            long x7 = words.getLong(nStart + 56);
+
+            // pass 1
+            c ^= x0;
+            a -= T[(int) c & 255] ^ T[((int) (c >>> 16) & 255) + 256] ^ T[((int) (c >>> 32) & 255) + 512] ^ T[((int) (c >>> 48) & 255) + 768];
+            b += T[((int) (c >>> 8) & 255) + 768] ^ T[((int) (c >>> 24) & 255) + 512] ^ T[((int) (c >>> 40) & 255) + 256] ^ T[(int) (c >>> 56)];
+            b *= 5;
+            a ^= x1;
+            b -= T[(int) a & 255] ^ T[((int) (a >>> 16) & 255) + 256] ^ T[((int) (a >>> 32) & 255) + 512] ^ T[((int) (a >>> 48) & 255) + 768];
+            c += T[((int) (a >>> 8) & 255) + 768] ^ T[((int) (a >>> 24) & 255) + 512] ^ T[((int) (a >>> 40) & 255) + 256] ^ T[(int) (a >>> 56)];
+            c *= 5;
+            b ^= x2;
+            c -= T[(int) b & 255] ^ T[((int) (b >>> 16) & 255) + 256] ^ T[((int) (b >>> 32) & 255) + 512] ^ T[((int) (b >>> 48) & 255) + 768];
+            a += T[((int) (b >>> 8) & 255) + 768] ^ T[((int) (b >>> 24) & 255) + 512] ^ T[((int) (b >>> 40) & 255) + 256] ^ T[(int) (b >>> 56)];
+            a *= 5;
+            c ^= x3;
+            a -= T[(int) c & 255] ^ T[((int) (c >>> 16) & 255) + 256] ^ T[((int) (c >>> 32) & 255) + 512] ^ T[((int) (c >>> 48) & 255) + 768];
+            b += T[((int) (c >>> 8) & 255) + 768] ^ T[((int) (c >>> 24) & 255) + 512] ^ T[((int) (c >>> 40) & 255) + 256] ^ T[(int) (c >>> 56)];
+            b *= 5;
+            a ^= x4;
+            b -= T[(int) a & 255] ^ T[((int) (a >>> 16) & 255) + 256] ^ T[((int) (a >>> 32) & 255) + 512] ^ T[((int) (a >>> 48) & 255) + 768];
+            c += T[((int) (a >>> 8) & 255) + 768] ^ T[((int) (a >>> 24) & 255) + 512] ^ T[((int) (a >>> 40) & 255) + 256] ^ T[(int) (a >>> 56)];
+            c *= 5;
+            b ^= x5;
+            c -= T[(int) b & 255] ^ T[((int) (b >>> 16) & 255) + 256] ^ T[((int) (b >>> 32) & 255) + 512] ^ T[((int) (b >>> 48) & 255) + 768];
+            a += T[((int) (b >>> 8) & 255) + 768] ^ T[((int) (b >>> 24) & 255) + 512] ^ T[((int) (b >>> 40) & 255) + 256] ^ T[(int) (b >>> 56)];
+            a *= 5;
+            c ^= x6;
+            a -= T[(int) c & 255] ^ T[((int) (c >>> 16) & 255) + 256] ^ T[((int) (c >>> 32) & 255) + 512] ^ T[((int) (c >>> 48) & 255) + 768];
+            b += T[((int) (c >>> 8) & 255) + 768] ^ T[((int) (c >>> 24) & 255) + 512] ^ T[((int) (c >>> 40) & 255) + 256] ^ T[(int) (c >>> 56)];
+            b *= 5;
+            a ^= x7;
+            b -= T[(int) a & 255] ^ T[((int) (a >>> 16) & 255) + 256] ^ T[((int) (a >>> 32) & 255) + 512] ^ T[((int) (a >>> 48) & 255) + 768];
+            c += T[((int) (a >>> 8) & 255) + 768] ^ T[((int) (a >>> 24) & 255) + 512] ^ T[((int) (a >>> 40) & 255) + 256] ^ T[(int) (a >>> 56)];
+            c *= 5;
+
+            // key schedule
+            x0 -= x7 ^ 0xA5A5A5A5A5A5A5A5L;
+            x1 ^= x0;
+            x2 += x1;
+            x3 -= x2 ^ (~x1 << 19);
+            x4 ^= x3;
+            x5 += x4;
+            x6 -= x5 ^ (~x4 >>> 23);
+            x7 ^= x6;
+            x0 += x7;
+            x1 -= x0 ^ (~x7 << 19);
+            x2 ^= x1;
+            x3 += x2;
+            x4 -= x3 ^ (~x2 >>> 23);
+            x5 ^= x4;
+            x6 += x5;
+            x7 -= x6 ^ 0x0123456789ABCDEFL;
+
+            // pass 2
+            b ^= x0;
+            c -= T[(int) b & 255] ^ T[((int) (b >>> 16) & 255) + 256] ^ T[((int) (b >>> 32) & 255) + 512] ^ T[((int) (b >>> 48) & 255) + 768];
+            a += T[((int) (b >>> 8) & 255) + 768] ^ T[((int) (b >>> 24) & 255) + 512] ^ T[((int) (b >>> 40) & 255) + 256] ^ T[(int) (b >>> 56)];
+            a *= 7;
+            c ^= x1;
+            a -= T[(int) c & 255] ^ T[((int) (c >>> 16) & 255) + 256] ^ T[((int) (c >>> 32) & 255) + 512] ^ T[((int) (c >>> 48) & 255) + 768];
+            b += T[((int) (c >>> 8) & 255) + 768] ^ T[((int) (c >>> 24) & 255) + 512] ^ T[((int) (c >>> 40) & 255) + 256] ^ T[(int) (c >>> 56)];
+            b *= 7;
+            a ^= x2;
+            b -= T[(int) a & 255] ^ T[((int) (a >>> 16) & 255) + 256] ^ T[((int) (a >>> 32) & 255) + 512] ^ T[((int) (a >>> 48) & 255) + 768];
+            c += T[((int) (a >>> 8) & 255) + 768] ^ T[((int) (a >>> 24) & 255) + 512] ^ T[((int) (a >>> 40) & 255) + 256] ^ T[(int) (a >>> 56)];
+            c *= 7;
+            b ^= x3;
+            c -= T[(int) b & 255] ^ T[((int) (b >>> 16) & 255) + 256] ^ T[((int) (b >>> 32) & 255) + 512] ^ T[((int) (b >>> 48) & 255) + 768];
+            a += T[((int) (b >>> 8) & 255) + 768] ^ T[((int) (b >>> 24) & 255) + 512] ^ T[((int) (b >>> 40) & 255) + 256] ^ T[(int) (b >>> 56)];
+            a *= 7;
+            c ^= x4;
+            a -= T[(int) c & 255] ^ T[((int) (c >>> 16) & 255) + 256] ^ T[((int) (c >>> 32) & 255) + 512] ^ T[((int) (c >>> 48) & 255) + 768];
+            b += T[((int) (c >>> 8) & 255) + 768] ^ T[((int) (c >>> 24) & 255) + 512] ^ T[((int) (c >>> 40) & 255) + 256] ^ T[(int) (c >>> 56)];
+            b *= 7;
+            a ^= x5;
+            b -= T[(int) a & 255] ^ T[((int) (a >>> 16) & 255) + 256] ^ T[((int) (a >>> 32) & 255) + 512] ^ T[((int) (a >>> 48) & 255) + 768];
+            c += T[((int) (a >>> 8) & 255) + 768] ^ T[((int) (a >>> 24) & 255) + 512] ^ T[((int) (a >>> 40) & 255) + 256] ^ T[(int) (a >>> 56)];
+            c *= 7;
+            b ^= x6;
+            c -= T[(int) b & 255] ^ T[((int) (b >>> 16) & 255) + 256] ^ T[((int) (b >>> 32) & 255) + 512] ^ T[((int) (b >>> 48) & 255) + 768];
+            a += T[((int) (b >>> 8) & 255) + 768] ^ T[((int) (b >>> 24) & 255) + 512] ^ T[((int) (b >>> 40) & 255) + 256] ^ T[(int) (b >>> 56)];
+            a *= 7;
+            c ^= x7;
+            a -= T[(int) c & 255] ^ T[((int) (c >>> 16) & 255) + 256] ^ T[((int) (c >>> 32) & 255) + 512] ^ T[((int) (c >>> 48) & 255) + 768];
+            b += T[((int) (c >>> 8) & 255) + 768] ^ T[((int) (c >>> 24) & 255) + 512] ^ T[((int) (c >>> 40) & 255) + 256] ^ T[(int) (c >>> 56)];
+            b *= 7;
+
+            // key schedule
+            x0 -= x7 ^ 0xA5A5A5A5A5A5A5A5L;
+            x1 ^= x0;
+            x2 += x1;
+            x3 -= x2 ^ (~x1 << 19);
+            x4 ^= x3;
+            x5 += x4;
+            x6 -= x5 ^ (~x4 >>> 23);
+            x7 ^= x6;
+            x0 += x7;
+            x1 -= x0 ^ (~x7 << 19);
+            x2 ^= x1;
+            x3 += x2;
+            x4 -= x3 ^ (~x2 >>> 23);
+            x5 ^= x4;
+            x6 += x5;
+            x7 -= x6 ^ 0x0123456789ABCDEFL;
+
+            // pass 3
+            a ^= x0;
+            b -= T[(int) a & 255] ^ T[((int) (a >>> 16) & 255) + 256] ^ T[((int) (a >>> 32) & 255) + 512] ^ T[((int) (a >>> 48) & 255) + 768];
+            c += T[((int) (a >>> 8) & 255) + 768] ^ T[((int) (a >>> 24) & 255) + 512] ^ T[((int) (a >>> 40) & 255) + 256] ^ T[(int) (a >>> 56)];
+            c *= 9;
+            b ^= x1;
+            c -= T[(int) b & 255] ^ T[((int) (b >>> 16) & 255) + 256] ^ T[((int) (b >>> 32) & 255) + 512] ^ T[((int) (b >>> 48) & 255) + 768];
+            a += T[((int) (b >>> 8) & 255) + 768] ^ T[((int) (b >>> 24) & 255) + 512] ^ T[((int) (b >>> 40) & 255) + 256] ^ T[(int) (b >>> 56)];
+            a *= 9;
+            c ^= x2;
+            a -= T[(int) c & 255] ^ T[((int) (c >>> 16) & 255) + 256] ^ T[((int) (c >>> 32) & 255) + 512] ^ T[((int) (c >>> 48) & 255) + 768];
+            b += T[((int) (c >>> 8) & 255) + 768] ^ T[((int) (c >>> 24) & 255) + 512] ^ T[((int) (c >>> 40) & 255) + 256] ^ T[(int) (c >>> 56)];
+            b *= 9;
+            a ^= x3;
+            b -= T[(int) a & 255] ^ T[((int) (a >>> 16) & 255) + 256] ^ T[((int) (a >>> 32) & 255) + 512] ^ T[((int) (a >>> 48) & 255) + 768];
+            c += T[((int) (a >>> 8) & 255) + 768] ^ T[((int) (a >>> 24) & 255) + 512] ^ T[((int) (a >>> 40) & 255) + 256] ^ T[(int) (a >>> 56)];
+            c *= 9;
+            b ^= x4;
+            c -= T[(int) b & 255] ^ T[((int) (b >>> 16) & 255) + 256] ^ T[((int) (b >>> 32) & 255) + 512] ^ T[((int) (b >>> 48) & 255) + 768];
+            a += T[((int) (b >>> 8) & 255) + 768] ^ T[((int) (b >>> 24) & 255) + 512] ^ T[((int) (b >>> 40) & 255) + 256] ^ T[(int) (b >>> 56)];
+            a *= 9;
+            c ^= x5;
+            a -= T[(int) c & 255] ^ T[((int) (c >>> 16) & 255) + 256] ^ T[((int) (c >>> 32) & 255) + 512] ^ T[((int) (c >>> 48) & 255) + 768];
+            b += T[((int) (c >>> 8) & 255) + 768] ^ T[((int) (c >>> 24) & 255) + 512] ^ T[((int) (c >>> 40) & 255) + 256] ^ T[(int) (c >>> 56)];
+            b *= 9;
+            a ^= x6;
+            b -= T[(int) a & 255] ^ T[((int) (a >>> 16) & 255) + 256] ^ T[((int) (a >>> 32) & 255) + 512] ^ T[((int) (a >>> 48) & 255) + 768];
+            c += T[((int) (a >>> 8) & 255) + 768] ^ T[((int) (a >>> 24) & 255) + 512] ^ T[((int) (a >>> 40) & 255) + 256] ^ T[(int) (a >>> 56)];
+            c *= 9;
+            b ^= x7;
+            c -= T[(int) b & 255] ^ T[((int) (b >>> 16) & 255) + 256] ^ T[((int) (b >>> 32) & 255) + 512] ^ T[((int) (b >>> 48) & 255) + 768];
+            a += T[((int) (b >>> 8) & 255) + 768] ^ T[((int) (b >>> 24) & 255) + 512] ^ T[((int) (b >>> 40) & 255) + 256] ^ T[(int) (b >>> 56)];
+            a *= 9;
+
+            // feedforward
+            a ^= aa;
+            b -= bb;
+            c += cc;
+            nStart += 64;
+        }
+        this.a = a;
+        this.b = b;
+        this.c = c;
+    }
+
+    void HashCore(byte[] data, int nStart, int nSize) {
         this.lLen += ((long) nSize);
         byte[] buf = this.buf;
         int nBufPos = this.nBufPos;
-        int nEnd = (nStart + nSize);
-        while (nStart < nEnd) {
-            nToCopy = (64 - nBufPos);
+        if (nBufPos > 0) {
+            int nToCopy = (64 - nBufPos);
             if (nToCopy > nSize) {
                 nToCopy = nSize;
             }
-
             System.arraycopy(data, nStart, buf, nBufPos, nToCopy);
             nStart += nToCopy;
             nBufPos += nToCopy;
             nSize -= nToCopy;
-            if (64 <= nBufPos) {
-                this.ProcessBlock();
-                nBufPos = 0;
-                continue;
+            if (nBufPos < 64) {
+                this.nBufPos = nBufPos;
+                return;
             }
-            break;
+            this.Compress(buf, 0, 1);
+            nBufPos = 0;
+        }
+        // whole blocks are compressed straight from the input
+        int nBlocks = (nSize >>> 6);
+        if (nBlocks > 0) {
+            this.Compress(data, nStart, nBlocks);
+            nStart += (nBlocks << 6);
+            nSize -= (nBlocks << 6);
         }
-        this.nBufPos = nBufPos;
+        System.arraycopy(data, nStart, buf, 0, nSize);
+        this.nBufPos = nSize;
+    }
+
+    byte[] HashFinal() {
+        byte[] result = new byte[24];
+        this.HashFinal(result, 0);
+        return result;
     }
 
-    private byte[] HashFinal() {
+    void HashFinal(byte[] result, int nIdx) {
         int nBufPos = this.nBufPos;
         byte[] buf = this.buf;
         buf[nBufPos] = ((byte) 1);
         nBufPos++;
         if (56 <= nBufPos) {
             Arrays.fill(buf, nBufPos, nBufPos + (64 - nBufPos), (byte) 0);
-            this.ProcessBlock();
+            this.Compress(buf, 0, 1);
             nBufPos = 0;
         }
         Arrays.fill(buf, nBufPos, nBufPos + ((64 - nBufPos) - 8), (byte) 0);
         AwaruaTiger.LongToBytes((this.lLen << 3), buf, 56);
-        this.ProcessBlock();
-        byte[] result = new byte[24];
-        AwaruaTiger.LongToBytes(this.a, result, 0);
-        AwaruaTiger.LongToBytes(this.b, result, 8);
-        AwaruaTiger.LongToBytes(this.c, result, 16);
-        return result;
+        this.Compress(buf, 0, 1);
+        AwaruaTiger.LongToBytes(this.a, result, nIdx);
+        AwaruaTiger.LongToBytes(this.b, result, nIdx + 8);
+        AwaruaTiger.LongToBytes(this.c, result, nIdx + 16);
     }
 
     void Initialize() {
@@ -243,82 +397,6 @@ class AwaruaTiger {
         }
     }
 
-    private void ProcessBlock() {
-        int nI = 0;
-        int nPos = 0;
-        long[] block = this.block;
-        byte[] buf = this.buf;
-        while (nPos < 64) {
-            block[nI] = ((((((((((long) buf[(nPos + 7)]) << 56) | ((((long) buf[(nPos + 6)]) & 255L) << 48)) | ((((long) buf[(nPos + 5)]) & 255L) << 40)) | ((((long) buf[(nPos + 4)]) & 255L) << 32)) | ((((long) buf[(nPos + 3)]) & 255L) << 24)) | ((((long) buf[(nPos + 2)]) & 255L) << 16)) | ((((long) buf[(nPos + 1)]) & 255L) << 8)) | (((long) buf[nPos]) & 255L));
-            nPos += 8;
-            nI++;
-        }
-        this.Compress();
-    }
-
-    private void RoundABC(long x, int mul) {
-        long c = this.c;
-        c ^= x;
-        int ch = ((int) (c >> 32));
-        int cl = ((int) c);
-        this.a -= (((T[(cl & 255)] ^ T[(((cl >> 16) & 255) + 256)]) ^ T[((ch & 255) + 512)]) ^ T[(((ch >> 16) & 255) + 768)]);
-        this.b += (((T[(((cl >> 8) & 255) + 768)] ^ T[(((cl >> 24) & 255) + 512)]) ^ T[(((ch >> 8) & 255) + 256)]) ^ T[((ch >> 24) & 255)]);
-        this.b *= ((long) mul);
-        this.c = c;
-    }
-
-    private void RoundBCA(long x, int mul) {
-        long a = this.a;
-        a ^= x;
-        int ah = ((int) (a >> 32));
-        int al = ((int) a);
-        this.b -= (((T[(al & 255)] ^ T[(((al >> 16) & 255) + 256)]) ^ T[((ah & 255) + 512)]) ^ T[(((ah >> 16) & 255) + 768)]);
-        this.c += (((T[(((al >> 8) & 255) + 768)] ^ T[(((al >> 24) & 255) + 512)]) ^ T[(((ah >> 8) & 255) + 256)]) ^ T[((ah >> 24) & 255)]);
-        this.c *= ((long) mul);
-        this.a = a;
-    }
-
-    private void RoundCAB(long x, int mul) {
-        long b = this.b;
-        b ^= x;
-        int bh = ((int) (b >> 32));
-        int bl = ((int) b);
-        this.c -= (((T[(bl & 255)] ^ T[(((bl >> 16) & 255) + 256)]) ^ T[((bh & 255) + 512)]) ^ T[(((bh >> 16) & 255) + 768)]);
-        this.a += (((T[(((bl >> 8) & 255) + 768)] ^ T[(((bl >> 24) & 255) + 512)]) ^ T[(((bh >> 8) & 255) + 256)]) ^ T[((bh >> 24) & 255)]);
-        this.a *= ((long) mul);
-        this.b = b;
-    }
-
-    private void Schedule(long[] x) {
-        int _Vb_t_i4_0 = 0;
-        x[_Vb_t_i4_0] -= (x[7] ^ -6510615555426900571L);
-        x[1] = (x[1] ^ x[0]);
-        _Vb_t_i4_0 = 2;
-        x[_Vb_t_i4_0] += x[1];
-        _Vb_t_i4_0 = 3;
-        x[_Vb_t_i4_0] -= (x[2] ^ ((~x[1]) << 19));
-        x[4] = (x[4] ^ x[3]);
-        _Vb_t_i4_0 = 5;
-        x[_Vb_t_i4_0] += x[4];
-        _Vb_t_i4_0 = 6;
-        x[_Vb_t_i4_0] -= (x[5] ^ (((~x[4]) >> 23) & 2199023255551L));
-        x[7] = (x[7] ^ x[6]);
-        _Vb_t_i4_0 = 0;
-        x[_Vb_t_i4_0] += x[7];
-        _Vb_t_i4_0 = 1;
-        x[_Vb_t_i4_0] -= (x[0] ^ ((~x[7]) << 19));
-        x[2] = (x[2] ^ x[1]);
-        _Vb_t_i4_0 = 3;
-        x[_Vb_t_i4_0] += x[2];
-        _Vb_t_i4_0 = 4;
-        x[_Vb_t_i4_0] -= (x[3] ^ (((~x[2]) >> 23) & 2199023255551L));
-        x[5] = (x[5] ^ x[4]);
-        _Vb_t_i4_0 = 6;
-        x[_Vb_t_i4_0] += x[5];
-        _Vb_t_i4_0 = 7;
-        x[_Vb_t_i4_0] -= (x[6] ^ 81985529216486895L);
-    }
-
     byte[] ComputeHash(byte[] buffer) {
         // Do some validation
         if (buffer == null) {
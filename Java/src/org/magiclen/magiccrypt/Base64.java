@@ -58,6 +58,15 @@ import java.util.Arrays;
  * </ul>
  *
  * <p>
+ * On Java 8 and later, the array and buffer methods of the encoders and of the
+ * basic and URL decoders hand the work to {@code java.util.Base64}, which newer
+ * HotSpot releases intrinsify. The Base64 string and buffer methods of
+ * {@link MagicCrypt} use it as well for inputs of at least 96 bytes. The
+ * streams returned by {@code wrap} and the MIME decoder always use this class.
+ * Setting the system property {@code org.magiclen.magiccrypt.base64.platform}
+ * to {@code false} turns the delegation off.
+ *
+ * <p>
  * Unless otherwise noted, passing a {@code null} argument to a method of this
  * class will cause a {@link java.lang.NullPointerException
  * NullPointerException} to be thrown.
@@ -183,12 +192,14 @@ public class Base64 {
         private final int linemax;
         private final boolean isURL;
         private final boolean doPadding;
+        private final Object platform;
 
         private Encoder(boolean isURL, byte[] newline, int linemax, boolean doPadding) {
             this.isURL = isURL;
             this.newline = newline;
             this.linemax = linemax;
             this.doPadding = doPadding;
+            this.platform = Base64Platform.encoder(isURL, newline, linemax, doPadding);
         }
 
         /**
@@ -205,6 +216,22 @@ public class Base64 {
          */
         private static final char[] toBase64URL = {'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '-', '_'};
 
+        /**
+         * Lookup tables that translate a 12-bit value into the two base64
+         * characters it encodes to, high character in the upper byte. Encoding
+         * a 3-byte group takes two lookups instead of four.
+         */
+        private static final short[] toBase64Pairs = pairs(toBase64);
+        private static final short[] toBase64URLPairs = pairs(toBase64URL);
+
+        private static short[] pairs(char[] base64) {
+            short[] pairs = new short[4096];
+            for (int i = 0; i < 4096; i++) {
+                pairs[i] = (short) (base64[i >>> 6] << 8 | base64[i & 0x3f]);
+            }
+            return pairs;
+        }
+
         private static final int MIMELINEMAX = 76;
         private static final byte[] CRLF = new byte[]{'\r', '\n'};
 
@@ -212,7 +239,7 @@ public class Base64 {
         static final Encoder RFC4648_URLSAFE = new Encoder(true, null, -1, true);
         static final Encoder RFC2045 = new Encoder(false, CRLF, MIMELINEMAX, true);
 
-        private final int outLength(int srclen) {
+        final int outLength(int srclen) {
             int len = 0;
             if (doPadding) {
                 len = 4 * ((srclen + 2) / 3);
@@ -237,6 +264,9 @@ public class Base64 {
          * bytes.
          */
         public byte[] encode(byte[] src) {
+            if (platform != null) {
+                return Base64Platform.encode(platform, src);
+            }
             int len = outLength(src.length); // dst array size
             byte[] dst = new byte[len];
             int ret = encode0(src, 0, src.length, dst);
@@ -269,6 +299,9 @@ public class Base64 {
             if (dst.length < len) {
                 throw new IllegalArgumentException("Output byte array is too small for encoding all input bytes");
             }
+            if (platform != null) {
+                return Base64Platform.encode(platform, src, dst);
+            }
             return encode0(src, 0, src.length, dst);
         }
 
@@ -309,6 +342,9 @@ public class Base64 {
          * @return A newly-allocated byte buffer containing the encoded bytes.
          */
         public ByteBuffer encode(ByteBuffer buffer) {
+            if (platform != null) {
+                return Base64Platform.encode(platform, buffer);
+            }
             int len = outLength(buffer.remaining());
             byte[] dst = new byte[len];
             int ret = 0;
@@ -344,7 +380,7 @@ public class Base64 {
             if (os == null) {
                 throw new NullPointerException();
             }
-            return new EncOutputStream(os, isURL ? toBase64URL : toBase64, newline, linemax, doPadding);
+            return new EncOutputStream(os, isURL ? toBase64URL : toBase64, isURL ? toBase64URLPairs : toBase64Pairs, newline, linemax, doPadding);
         }
 
         /**
@@ -367,27 +403,125 @@ public class Base64 {
             return new Encoder(isURL, newline, linemax, false);
         }
 
-        private int encode0(byte[] src, int off, int end, byte[] dst) {
+        /**
+         * Encodes the bytes in {@code src[off, end)} as base64 characters into
+         * {@code dst} starting at {@code dp}. The caller has to make sure that
+         * {@code dst} has at least {@code outLength(end - off)} characters
+         * left.
+         *
+         * @return the position in {@code dst} after the last written character
+         */
+        int encode0(byte[] src, int off, int end, char[] dst, int dp) {
             char[] base64 = isURL ? toBase64URL : toBase64;
+            short[] pairs = isURL ? toBase64URLPairs : toBase64Pairs;
             int sp = off;
             int slen = (end - off) / 3 * 3;
             int sl = off + slen;
             if (linemax > 0 && slen > linemax / 4 * 3) {
                 slen = linemax / 4 * 3;
             }
-            int dp = 0;
             while (sp < sl) {
                 int sl0 = Math.min(sp + slen, sl);
                 for (int sp0 = sp, dp0 = dp; sp0 < sl0;) {
                     int bits = (src[sp0++] & 0xff) << 16 | (src[sp0++] & 0xff) << 8 | (src[sp0++] & 0xff);
-                    dst[dp0++] = (byte) base64[(bits >>> 18) & 0x3f];
-                    dst[dp0++] = (byte) base64[(bits >>> 12) & 0x3f];
-                    dst[dp0++] = (byte) base64[(bits >>> 6) & 0x3f];
-                    dst[dp0++] = (byte) base64[bits & 0x3f];
+                    int hi = pairs[bits >>> 12];
+                    int lo = pairs[bits & 0xfff];
+                    dst[dp0++] = (char) (hi >>> 8);
+                    dst[dp0++] = (char) (hi & 0xff);
+                    dst[dp0++] = (char) (lo >>> 8);
+                    dst[dp0++] = (char) (lo & 0xff);
                 }
                 int dlen = (sl0 - sp) / 3 * 4;
                 dp += dlen;
                 sp = sl0;
+                if (dlen == linemax && sp < end) {
+                    for (byte b : newline) {
+                        dst[dp++] = (char) b;
+                    }
+                }
+            }
+            if (sp < end) { // 1 or 2 leftover bytes
+                int b0 = src[sp++] & 0xff;
+                dst[dp++] = base64[b0 >> 2];
+                if (sp == end) {
+                    dst[dp++] = base64[(b0 << 4) & 0x3f];
+                    if (doPadding) {
+                        dst[dp++] = '=';
+                        dst[dp++] = '=';
+                    }
+                } else {
+                    int b1 = src[sp++] & 0xff;
+                    dst[dp++] = base64[(b0 << 4) & 0x3f | (b1 >> 4)];
+                    dst[dp++] = base64[(b1 << 2) & 0x3f];
+                    if (doPadding) {
+                        dst[dp++] = '=';
+                    }
+                }
+            }
+            return dp;
+        }
+
+        /**
+         * Encodes the bytes in {@code src[off, end)} as base64 characters into
+         * {@code dst} starting at {@code dp}, like
+         * {@link #encode0(byte[], int, int, char[], int)}. A range of at least
+         * {@code Base64Platform.MIN_RANGE_LENGTH} bytes is encoded by the
+         * platform encoder when there is one.
+         *
+         * @return the position in {@code dst} after the last written character
+         */
+        int encodeRange(byte[] src, int off, int end, char[] dst, int dp) {
+            if (platform != null && end - off >= Base64Platform.MIN_RANGE_LENGTH) {
+                return Base64Platform.encode(platform, src, off, end, dst, dp);
+            }
+            return encode0(src, off, end, dst, dp);
+        }
+
+        private int encode0(byte[] src, int off, int end, byte[] dst) {
+            return encode0(src, off, end, dst, 0);
+        }
+
+        /**
+         * Encodes the 3-byte groups in {@code src[sp, sl)} as base64 bytes
+         * into {@code dst} starting at {@code dp}, without any line separator.
+         * The length of the range has to be a multiple of 3.
+         *
+         * @return the position in {@code dst} after the last written byte
+         */
+        static int encodeBlock(byte[] src, int sp, int sl, byte[] dst, int dp, short[] pairs) {
+            while (sp < sl) {
+                int bits = (src[sp++] & 0xff) << 16 | (src[sp++] & 0xff) << 8 | (src[sp++] & 0xff);
+                int hi = pairs[bits >>> 12];
+                int lo = pairs[bits & 0xfff];
+                dst[dp++] = (byte) (hi >>> 8);
+                dst[dp++] = (byte) hi;
+                dst[dp++] = (byte) (lo >>> 8);
+                dst[dp++] = (byte) lo;
+            }
+            return dp;
+        }
+
+        /**
+         * Encodes the bytes in {@code src[off, end)} as base64 bytes into
+         * {@code dst} starting at {@code dp}. The caller has to make sure that
+         * {@code dst} has at least {@code outLength(end - off)} bytes left.
+         *
+         * @return the position in {@code dst} after the last written byte
+         */
+        int encode0(byte[] src, int off, int end, byte[] dst, int dp) {
+            char[] base64 = isURL ? toBase64URL : toBase64;
+            short[] pairs = isURL ? toBase64URLPairs : toBase64Pairs;
+            int sp = off;
+            int slen = (end - off) / 3 * 3;
+            int sl = off + slen;
+            if (linemax > 0 && slen > linemax / 4 * 3) {
+                slen = linemax / 4 * 3;
+            }
+            while (sp < sl) {
+                int sl0 = Math.min(sp + slen, sl);
+                int dlen = (sl0 - sp) / 3 * 4;
+                dp = encodeBlock(src, sp, sl0, dst, dp, pairs);
+                sp = sl0;
                 if (dlen == linemax && sp < end) {
                     for (byte b : newline) {
                         dst[dp++] = b;
@@ -414,6 +548,22 @@ public class Base64 {
             }
             return dp;
         }
+
+        /**
+         * Encodes the bytes in {@code src[off, end)} as base64 bytes into
+         * {@code dst} starting at {@code dp}, like
+         * {@link #encode0(byte[], int, int, byte[], int)}. A range of at least
+         * {@code Base64Platform.MIN_RANGE_LENGTH} bytes is encoded by the
+         * platform encoder when there is one.
+         *
+         * @return the position in {@code dst} after the last written byte
+         */
+        int encodeRange(byte[] src, int off, int end, byte[] dst, int dp) {
+            if (platform != null && end - off >= Base64Platform.MIN_RANGE_LENGTH) {
+                return Base64Platform.encode(platform, src, off, end, dst, dp);
+            }
+            return encode0(src, off, end, dst, dp);
+        }
     }
 
     /**
@@ -447,10 +597,12 @@ public class Base64 {
 
         private final boolean isURL;
         private final boolean isMIME;
+        private final Object platform;
 
         private Decoder(boolean isURL, boolean isMIME) {
             this.isURL = isURL;
             this.isMIME = isMIME;
+            this.platform = Base64Platform.decoder(isURL, isMIME);
         }
 
         /**
@@ -502,6 +654,12 @@ public class Base64 {
          * Base64 scheme
          */
         public byte[] decode(byte[] src) {
+            if (platform != null) {
+                byte[] dst = Base64Platform.decode(platform, src);
+                if (dst != null) {
+                    return dst;
+                }
+            }
             byte[] dst = new byte[outLength(src, 0, src.length)];
             int ret = decode0(src, 0, src.length, dst);
             if (ret != dst.length) {
@@ -559,6 +717,12 @@ public class Base64 {
             if (dst.length < len) {
                 throw new IllegalArgumentException("Output byte array is too small for decoding all input bytes");
             }
+            if (platform != null) {
+                int ret = Base64Platform.decode(platform, src, dst);
+                if (ret >= 0) {
+                    return ret;
+                }
+            }
             return decode0(src, 0, src.length, dst);
         }
 
@@ -586,6 +750,12 @@ public class Base64 {
          * Base64 scheme.
          */
         public ByteBuffer decode(ByteBuffer buffer) {
+            if (platform != null) {
+                ByteBuffer dst = Base64Platform.decode(platform, buffer);
+                if (dst != null) {
+                    return dst;
+                }
+            }
             int pos0 = buffer.position();
             try {
                 byte[] src;
@@ -633,7 +803,7 @@ public class Base64 {
             return new DecInputStream(is, isURL ? fromBase64URL : fromBase64, isMIME);
         }
 
-        private int outLength(byte[] src, int sp, int sl) {
+        int outLength(byte[] src, int sp, int sl) {
             int[] base64 = isURL ? fromBase64URL : fromBase64;
             int paddings = 0;
             int len = sl - sp;
@@ -674,11 +844,45 @@ public class Base64 {
         }
 
         private int decode0(byte[] src, int sp, int sl, byte[] dst) {
+            return decode0(src, sp, sl, dst, 0);
+        }
+
+        /**
+         * Decodes the base64 bytes in {@code src[sp, sl)} into {@code dst}
+         * starting at {@code dp}. Decoding never writes ahead of the input, so
+         * {@code src} and {@code dst} may be the same array as long as
+         * {@code dp <= sp}.
+         *
+         * @return the position in {@code dst} after the last written byte
+         */
+        int decode0(byte[] src, int sp, int sl, byte[] dst, int dp) {
             int[] base64 = isURL ? fromBase64URL : fromBase64;
-            int dp = 0;
             int bits = 0;
             int shiftto = 18; // pos of first byte of 4-byte atom
             while (sp < sl) {
+                if (shiftto == 18) {
+                    // fast path: whole 4-char units are decoded at once as long
+                    // as none of them is padding, a line break or illegal; the
+                    // OR of the four table values is negative otherwise
+                    int sl0 = sp + ((sl - sp) & ~3);
+                    while (sp < sl0) {
+                        int b0 = base64[src[sp] & 0xff];
+                        int b1 = base64[src[sp + 1] & 0xff];
+                        int b2 = base64[src[sp + 2] & 0xff];
+                        int b3 = base64[src[sp + 3] & 0xff];
+                        if ((b0 | b1 | b2 | b3) < 0) {
+                            break;
+                        }
+                        int bits0 = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+                        dst[dp++] = (byte) (bits0 >> 16);
+                        dst[dp++] = (byte) (bits0 >> 8);
+                        dst[dp++] = (byte) bits0;
+                        sp += 4;
+                    }
+                    if (sp >= sl) {
+                        break;
+                    }
+                }
                 int b = src[sp++] & 0xff;
                 if ((b = base64[b]) < 0) {
                     if (b == -2) { // padding byte '='
@@ -729,26 +933,55 @@ public class Base64 {
             }
             return dp;
         }
+
+        /**
+         * Decodes the base64 bytes in {@code src[sp, sl)} into {@code dst}
+         * starting at {@code dp}, like
+         * {@link #decode0(byte[], int, int, byte[], int)}. A range of at least
+         * {@code Base64Platform.MIN_RANGE_LENGTH} bytes is decoded by the
+         * platform decoder when there is one. {@code src} and {@code dst} may
+         * be the same array as long as {@code dp <= sp}. Input rejected by the platform
+         * decoder is decoded again by this class to report the error.
+         *
+         * @return the position in {@code dst} after the last written byte
+         */
+        int decodeRange(byte[] src, int sp, int sl, byte[] dst, int dp) {
+            if (platform != null && sl - sp >= Base64Platform.MIN_RANGE_LENGTH) {
+                int ret = Base64Platform.decode(platform, src, sp, sl, dst, dp);
+                if (ret >= 0) {
+                    return ret;
+                }
+            }
+            return decode0(src, sp, sl, dst, dp);
+        }
     }
 
     /*
-     * An output stream for encoding bytes into the Base64.
+     * An output stream for encoding bytes into the Base64. Complete 3-byte
+     * groups are encoded into a staging buffer, which is written to the
+     * underlying output stream in blocks.
      */
     private static class EncOutputStream extends FilterOutputStream {
 
+        private static final int BUFFER_SIZE = 8192;
+
         private int leftover = 0;
         private int b0, b1, b2;
         private boolean closed = false;
 
         private final char[] base64; // byte->base64 mapping
+        private final short[] pairs; // 12 bits->two base64 bytes mapping
         private final byte[] newline; // line separator, if needed
         private final int linemax;
         private final boolean doPadding;// whether or not to pad
         private int linepos = 0;
+        private final byte[] buf = new byte[BUFFER_SIZE]; // staging buffer for encoded bytes
+        private final byte[] sbBuf = new byte[1];
 
-        EncOutputStream(OutputStream os, char[] base64, byte[] newline, int linemax, boolean doPadding) {
+        EncOutputStream(OutputStream os, char[] base64, short[] pairs, byte[] newline, int linemax, boolean doPadding) {
             super(os);
             this.base64 = base64;
+            this.pairs = pairs;
             this.newline = newline;
             this.linemax = linemax;
             this.doPadding = doPadding;
@@ -756,16 +989,32 @@ public class Base64 {
 
         @Override
         public void write(int b) throws IOException {
-            byte[] buf = new byte[1];
-            buf[0] = (byte) (b & 0xff);
-            write(buf, 0, 1);
+            sbBuf[0] = (byte) b;
+            write(sbBuf, 0, 1);
         }
 
-        private void checkNewline() throws IOException {
+        /*
+         * Appends the line separator to the staging buffer if the current line
+         * is full, and makes sure there is room for at least one more unit.
+         */
+        private int checkNewline(int dp) throws IOException {
             if (linepos == linemax) {
-                out.write(newline);
+                if (dp + newline.length + 4 > buf.length) {
+                    out.write(buf, 0, dp);
+                    dp = 0;
+                }
+                if (newline.length + 4 > buf.length) {
+                    out.write(newline);
+                } else {
+                    System.arraycopy(newline, 0, buf, dp, newline.length);
+                    dp += newline.length;
+                }
                 linepos = 0;
+            } else if (dp + 4 > buf.length) {
+                out.write(buf, 0, dp);
+                dp = 0;
             }
+            return dp;
         }
 
         @Override
@@ -779,6 +1028,7 @@ public class Base64 {
             if (len == 0) {
                 return;
             }
+            int dp = 0;
             if (leftover != 0) {
                 if (leftover == 1) {
                     b1 = b[off++] & 0xff;
@@ -790,23 +1040,27 @@ public class Base64 {
                 }
                 b2 = b[off++] & 0xff;
                 len--;
-                checkNewline();
-                out.write(base64[b0 >> 2]);
-                out.write(base64[(b0 << 4) & 0x3f | (b1 >> 4)]);
-                out.write(base64[(b1 << 2) & 0x3f | (b2 >> 6)]);
-                out.write(base64[b2 & 0x3f]);
+                dp = checkNewline(dp);
+                buf[dp++] = (byte) base64[b0 >> 2];
+                buf[dp++] = (byte) base64[(b0 << 4) & 0x3f | (b1 >> 4)];
+                buf[dp++] = (byte) base64[(b1 << 2) & 0x3f | (b2 >> 6)];
+                buf[dp++] = (byte) base64[b2 & 0x3f];
                 linepos += 4;
             }
-            int nBits24 = len / 3;
-            leftover = len - (nBits24 * 3);
-            while (nBits24-- > 0) {
-                checkNewline();
-                int bits = (b[off++] & 0xff) << 16 | (b[off++] & 0xff) << 8 | (b[off++] & 0xff);
-                out.write(base64[(bits >>> 18) & 0x3f]);
-                out.write(base64[(bits >>> 12) & 0x3f]);
-                out.write(base64[(bits >>> 6) & 0x3f]);
-                out.write(base64[bits & 0x3f]);
-                linepos += 4;
+            int end = off + len / 3 * 3;
+            leftover = len % 3;
+            while (off < end) {
+                dp = checkNewline(dp);
+                int n = Math.min(end - off, (buf.length - dp) / 4 * 3);
+                if (linemax > 0) {
+                    n = Math.min(n, (linemax - linepos) / 4 * 3);
+                }
+                dp = Encoder.encodeBlock(b, off, off + n, buf, dp, pairs);
+                off += n;
+                linepos += n / 3 * 4;
+            }
+            if (dp > 0) {
+                out.write(buf, 0, dp);
             }
             if (leftover == 1) {
                 b0 = b[off++] & 0xff;
@@ -820,34 +1074,42 @@ public class Base64 {
         public void close() throws IOException {
             if (!closed) {
                 closed = true;
+                int dp = 0;
                 if (leftover == 1) {
-                    checkNewline();
-                    out.write(base64[b0 >> 2]);
-                    out.write(base64[(b0 << 4) & 0x3f]);
+                    dp = checkNewline(dp);
+                    buf[dp++] = (byte) base64[b0 >> 2];
+                    buf[dp++] = (byte) base64[(b0 << 4) & 0x3f];
                     if (doPadding) {
-                        out.write('=');
-                        out.write('=');
+                        buf[dp++] = '=';
+                        buf[dp++] = '=';
                     }
                 } else if (leftover == 2) {
-                    checkNewline();
-                    out.write(base64[b0 >> 2]);
-                    out.write(base64[(b0 << 4) & 0x3f | (b1 >> 4)]);
-                    out.write(base64[(b1 << 2) & 0x3f]);
+                    dp = checkNewline(dp);
+                    buf[dp++] = (byte) base64[b0 >> 2];
+                    buf[dp++] = (byte) base64[(b0 << 4) & 0x3f | (b1 >> 4)];
+                    buf[dp++] = (byte) base64[(b1 << 2) & 0x3f];
                     if (doPadding) {
-                        out.write('=');
+                        buf[dp++] = '=';
                     }
                 }
                 leftover = 0;
+                if (dp > 0) {
+                    out.write(buf, 0, dp);
+                }
                 out.close();
             }
         }
     }
 
     /*
-     * An input stream for decoding Base64 bytes
+     * An input stream for decoding Base64 bytes. The encoded bytes are read
+     * from the underlying input stream in blocks, and complete 4-byte units
+     * are decoded straight out of the staging buffer.
      */
     private static class DecInputStream extends InputStream {
 
+        private static final int BUFFER_SIZE = 8192;
+
         private final InputStream is;
         private final boolean isMIME;
         private final int[] base64; // base64 -> byte mapping
@@ -858,6 +1120,9 @@ public class Base64 {
         // -> 8, 0, -8 (no byte for output)
         private boolean eof = false;
         private boolean closed = false;
+        private final byte[] buf = new byte[BUFFER_SIZE]; // staging buffer for encoded bytes
+        private int pos = 0; // next available byte in "buf"
+        private int limit = 0; // end of the available bytes in "buf"
 
         DecInputStream(InputStream is, int[] base64, boolean isMIME) {
             this.is = is;
@@ -872,6 +1137,25 @@ public class Base64 {
             return read(sbBuf, 0, 1) == -1 ? -1 : sbBuf[0] & 0xff;
         }
 
+        /*
+         * Returns the next encoded byte, or -1 if the end of the underlying
+         * input stream has been reached.
+         */
+        private int next() throws IOException {
+            if (pos == limit) {
+                int n;
+                do {
+                    n = is.read(buf, 0, buf.length);
+                } while (n == 0);
+                if (n < 0) {
+                    return -1;
+                }
+                pos = 0;
+                limit = n;
+            }
+            return buf[pos++] & 0xff;
+        }
+
         @Override
         public int read(byte[] b, int off, int len) throws IOException {
             if (closed) {
@@ -897,7 +1181,32 @@ public class Base64 {
                 bits = 0;
             }
             while (len > 0) {
-                int v = is.read();
+                if (nextin == 18 && len >= 3 && limit - pos >= 4) {
+                    // decode whole units straight from the staging buffer,
+                    // leave padding and other bytes to the loop below
+                    int sp = pos;
+                    int sl = sp + Math.min(limit - sp, len / 3 * 4) / 4 * 4;
+                    while (sp < sl) {
+                        int c0 = base64[buf[sp] & 0xff];
+                        int c1 = base64[buf[sp + 1] & 0xff];
+                        int c2 = base64[buf[sp + 2] & 0xff];
+                        int c3 = base64[buf[sp + 3] & 0xff];
+                        if ((c0 | c1 | c2 | c3) < 0) {
+                            break;
+                        }
+                        int unit = c0 << 18 | c1 << 12 | c2 << 6 | c3;
+                        b[off++] = (byte) (unit >> 16);
+                        b[off++] = (byte) (unit >> 8);
+                        b[off++] = (byte) unit;
+                        sp += 4;
+                    }
+                    len -= (sp - pos) / 4 * 3;
+                    pos = sp;
+                    if (len == 0) {
+                        break;
+                    }
+                }
+                int v = next();
                 if (v == -1) {
                     eof = true;
                     if (nextin != 18) {
@@ -928,7 +1237,7 @@ public class Base64 {
                     // x= shiftto==12 dangling x, invalid unit
                     // xx= shiftto==6 && missing last '='
                     // xx=y or last is not '='
-                    if (nextin == 18 || nextin == 12 || nextin == 6 && is.read() != '=') {
+                    if (nextin == 18 || nextin == 12 || nextin == 6 && next() != '=') {
                         throw new IOException("Illegal base64 ending sequence:" + nextin);
                     }
                     b[off++] = (byte) (bits >> (16));
@@ -977,7 +1286,7 @@ public class Base64 {
             if (closed) {
                 throw new IOException("Stream is closed");
             }
-            return is.available(); // TBD:
+            return limit - pos + is.available(); // TBD:
         }
 
         @Override
@@ -0,0 +1,309 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+
+/**
+ * 執行環境有提供java.util.Base64時(Java 8以上)，Base64類別的編碼器和解碼器會將工作交給它處理。新版HotSpot會把java.util.Base64編譯成內建的指令，輸出則和Base64類別完全相同。將系統屬性「org.magiclen.magiccrypt.base64.platform」設為「false」可以停用。
+ *
+ * <p>
+ * 這個類別是為Java 7編譯的，透過MethodHandle呼叫java.util.Base64。多版本JAR中另有一個給Java 9以上使用的版本，會直接呼叫java.util.Base64。
+ * </p>
+ *
+ * @author Magic Len
+ */
+final class Base64Platform {
+
+    // -----類別常數-----
+    /**
+     * 停用平台編碼器的系統屬性名稱。
+     */
+    static final String PROPERTY = "org.magiclen.magiccrypt.base64.platform";
+    /**
+     * 交給平台編碼器處理的最小資料長度。平台編碼器處理一段範圍時會產生新的輸出緩衝區，還要再複製到呼叫者的陣列，資料太短時不如直接編碼。
+     */
+    static final int MIN_RANGE_LENGTH = 96;
+    private static final Class<?> BASE64;
+    private static final MethodHandle ENCODE;
+    private static final MethodHandle ENCODE_TO;
+    private static final MethodHandle ENCODE_BUFFER;
+    private static final MethodHandle DECODE;
+    private static final MethodHandle DECODE_TO;
+    private static final MethodHandle DECODE_BUFFER;
+
+    // -----類別初始-----
+    static {
+        Class<?> base64 = null;
+        MethodHandle encode = null, encodeTo = null, encodeBuffer = null, decode = null, decodeTo = null, decodeBuffer = null;
+        try {
+            if (!"false".equalsIgnoreCase(System.getProperty(PROPERTY))) {
+                base64 = Class.forName("java.util.Base64");
+                final Class<?> encoder = Class.forName("java.util.Base64$Encoder");
+                final Class<?> decoder = Class.forName("java.util.Base64$Decoder");
+                final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                final MethodType toArray = MethodType.methodType(byte[].class, Object.class, byte[].class);
+                final MethodType toInt = MethodType.methodType(int.class, Object.class, byte[].class, byte[].class);
+                final MethodType toBuffer = MethodType.methodType(ByteBuffer.class, Object.class, ByteBuffer.class);
+                encode = lookup.findVirtual(encoder, "encode", MethodType.methodType(byte[].class, byte[].class)).asType(toArray);
+                encodeTo = lookup.findVirtual(encoder, "encode", MethodType.methodType(int.class, byte[].class, byte[].class)).asType(toInt);
+                encodeBuffer = lookup.findVirtual(encoder, "encode", MethodType.methodType(ByteBuffer.class, ByteBuffer.class)).asType(toBuffer);
+                decode = lookup.findVirtual(decoder, "decode", MethodType.methodType(byte[].class, byte[].class)).asType(toArray);
+                decodeTo = lookup.findVirtual(decoder, "decode", MethodType.methodType(int.class, byte[].class, byte[].class)).asType(toInt);
+                decodeBuffer = lookup.findVirtual(decoder, "decode", MethodType.methodType(ByteBuffer.class, ByteBuffer.class)).asType(toBuffer);
+            }
+        } catch (final Exception ex) {
+            base64 = null;
+        }
+        BASE64 = base64;
+        ENCODE = encode;
+        ENCODE_TO = encodeTo;
+        ENCODE_BUFFER = encodeBuffer;
+        DECODE = decode;
+        DECODE_TO = decodeTo;
+        DECODE_BUFFER = decodeBuffer;
+    }
+
+    // -----類別方法-----
+    /**
+     * 取得和指定設定相同的平台編碼器。
+     *
+     * @param isURL 傳入是否使用URL和檔名安全的字母表
+     * @param newline 傳入MIME格式的換行字元
+     * @param linemax 傳入MIME格式每行的最大長度，小於等於0表示不換行
+     * @param doPadding 傳入是否要補上「=」
+     * @return 傳回平台編碼器，如果沒有，傳回null
+     */
+    static Object encoder(final boolean isURL, final byte[] newline, final int linemax, final boolean doPadding) {
+        if (BASE64 == null) {
+            return null;
+        }
+        try {
+            Object encoder;
+            if (linemax > 0) {
+                encoder = BASE64.getMethod("getMimeEncoder", int.class, byte[].class).invoke(null, linemax, newline);
+            } else {
+                encoder = BASE64.getMethod(isURL ? "getUrlEncoder" : "getEncoder").invoke(null);
+            }
+            if (!doPadding) {
+                encoder = encoder.getClass().getMethod("withoutPadding").invoke(encoder);
+            }
+            return encoder;
+        } catch (final Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * 取得和指定設定相同的平台解碼器。MIME格式的解碼器不交給平台處理，因為它對補位字元之後的非ASCII字元的處理方式不同。
+     *
+     * @param isURL 傳入是否使用URL和檔名安全的字母表
+     * @param isMIME 傳入是否為MIME格式
+     * @return 傳回平台解碼器，如果沒有，傳回null
+     */
+    static Object decoder(final boolean isURL, final boolean isMIME) {
+        if (BASE64 == null || isMIME) {
+            return null;
+        }
+        try {
+            return BASE64.getMethod(isURL ? "getUrlDecoder" : "getDecoder").invoke(null);
+        } catch (final Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * 使用平台編碼器編碼整個陣列。
+     *
+     * @param encoder 傳入平台編碼器
+     * @param src 傳入要編碼的資料
+     * @return 傳回新的陣列，內容為編碼後的結果
+     */
+    static byte[] encode(final Object encoder, final byte[] src) {
+        try {
+            return (byte[]) ENCODE.invokeExact(encoder, src);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 使用平台編碼器編碼整個陣列，並從dst的開頭寫入。
+     *
+     * @param encoder 傳入平台編碼器
+     * @param src 傳入要編碼的資料
+     * @param dst 傳入輸出的陣列
+     * @return 傳回寫入的位元組數量
+     */
+    static int encode(final Object encoder, final byte[] src, final byte[] dst) {
+        try {
+            return (int) ENCODE_TO.invokeExact(encoder, src, dst);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 使用平台編碼器編碼緩衝區中從position到limit之間的資料。以陣列為底的緩衝區不會被複製。
+     *
+     * @param encoder 傳入平台編碼器
+     * @param src 傳入要編碼的資料
+     * @return 傳回新的緩衝區，從position為0開始存放編碼後的結果
+     */
+    static ByteBuffer encode(final Object encoder, final ByteBuffer src) {
+        try {
+            return (ByteBuffer) ENCODE_BUFFER.invokeExact(encoder, src);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 使用平台編碼器編碼src中從off到end之間的資料，並將編碼後的字元從dst的dp開始寫入。
+     *
+     * @param encoder 傳入平台編碼器
+     * @param src 傳入要編碼的資料
+     * @param off 傳入要編碼之資料的起始位置
+     * @param end 傳入要編碼之資料的結束位置(不包含)
+     * @param dst 傳入輸出的陣列
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個寫入的字元之後的位置
+     */
+    static int encode(final Object encoder, final byte[] src, final int off, final int end, final char[] dst, final int dp) {
+        final ByteBuffer buffer = encode(encoder, ByteBuffer.wrap(src, off, end - off));
+        final byte[] encoded = buffer.array();
+        final int length = buffer.remaining();
+        for (int i = 0; i < length; ++i) {
+            dst[dp + i] = (char) encoded[i];
+        }
+        return dp + length;
+    }
+
+    /**
+     * 使用平台編碼器編碼src中從off到end之間的資料，並將編碼後的資料從dst的dp開始寫入。
+     *
+     * @param encoder 傳入平台編碼器
+     * @param src 傳入要編碼的資料
+     * @param off 傳入要編碼之資料的起始位置
+     * @param end 傳入要編碼之資料的結束位置(不包含)
+     * @param dst 傳入輸出的陣列
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個寫入的位元組之後的位置
+     */
+    static int encode(final Object encoder, final byte[] src, final int off, final int end, final byte[] dst, final int dp) {
+        final ByteBuffer buffer = encode(encoder, ByteBuffer.wrap(src, off, end - off));
+        final int length = buffer.remaining();
+        System.arraycopy(buffer.array(), 0, dst, dp, length);
+        return dp + length;
+    }
+
+    /**
+     * 使用平台解碼器解碼整個陣列。
+     *
+     * @param decoder 傳入平台解碼器
+     * @param src 傳入要解碼的資料
+     * @return 傳回新的陣列，內容為解碼後的結果，如果資料不正確，傳回null，讓呼叫者重新解碼並以Base64類別的方式回報錯誤
+     */
+    static byte[] decode(final Object decoder, final byte[] src) {
+        try {
+            return (byte[]) DECODE.invokeExact(decoder, src);
+        } catch (final IllegalArgumentException ex) {
+            return null;
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 使用平台解碼器解碼整個陣列，並從dst的開頭寫入。
+     *
+     * @param decoder 傳入平台解碼器
+     * @param src 傳入要解碼的資料
+     * @param dst 傳入輸出的陣列
+     * @return 傳回寫入的位元組數量，如果資料不正確，傳回-1，讓呼叫者重新解碼並以Base64類別的方式回報錯誤
+     */
+    static int decode(final Object decoder, final byte[] src, final byte[] dst) {
+        try {
+            return (int) DECODE_TO.invokeExact(decoder, src, dst);
+        } catch (final IllegalArgumentException ex) {
+            return -1;
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 使用平台解碼器解碼緩衝區中從position到limit之間的資料。以陣列為底的緩衝區不會被複製。
+     *
+     * @param decoder 傳入平台解碼器
+     * @param src 傳入要解碼的資料
+     * @return 傳回新的緩衝區，從position為0開始存放解碼後的結果，如果資料不正確，傳回null，讓呼叫者重新解碼並以Base64類別的方式回報錯誤
+     */
+    static ByteBuffer decode(final Object decoder, final ByteBuffer src) {
+        try {
+            return (ByteBuffer) DECODE_BUFFER.invokeExact(decoder, src);
+        } catch (final IllegalArgumentException ex) {
+            return null;
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 使用平台解碼器解碼src中從sp到sl之間的資料，並將解碼後的資料從dst的dp開始寫入。解碼後的資料會先放在新的陣列中，因此只要dp不大於sp，src和dst可以是同一個陣列。
+     *
+     * @param decoder 傳入平台解碼器
+     * @param src 傳入要解碼的資料
+     * @param sp 傳入要解碼之資料的起始位置
+     * @param sl 傳入要解碼之資料的結束位置(不包含)
+     * @param dst 傳入輸出的陣列
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個寫入的位元組之後的位置，如果資料不正確，傳回-1，讓呼叫者重新解碼並以Base64類別的方式回報錯誤
+     */
+    static int decode(final Object decoder, final byte[] src, final int sp, final int sl, final byte[] dst, final int dp) {
+        final ByteBuffer buffer = decode(decoder, ByteBuffer.wrap(src, sp, sl - sp));
+        if (buffer == null) {
+            return -1;
+        }
+        final int length = buffer.remaining();
+        System.arraycopy(buffer.array(), 0, dst, dp, length);
+        return dp + length;
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private Base64Platform() {
+    }
+}
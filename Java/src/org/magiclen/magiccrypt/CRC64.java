@@ -17,38 +17,165 @@
  */
 package org.magiclen.magiccrypt;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.Checksum;
+import org.magiclen.magiccrypt.lib.Batches;
+import org.magiclen.magiccrypt.lib.PackedData;
+
 /**
- * 計算CRC64(ECMA)雜湊值。
+ * <p>
+ * 計算CRC64(ECMA)雜湊值。</p>
+ *
+ * <p>
+ * 使用Slicing-by-16的方式，每次查16個表格處理16個位元組。除了一次計算整個陣列的類別方法之外，也可以建立物件，分多次加入資料。</p>
+ *
+ * <p>
+ * 兩段資料的CRC64雜湊值可以用combine合併，因此很大的資料可以切成數個範圍平行計算。</p>
  *
  * @author Magic Len
  */
-public class CRC64 {
+public class CRC64 implements Checksum {
+
+    // -----類別類別-----
+    /**
+     * 平行計算緩衝區或是檔案通道中一個範圍的CRC64雜湊值。範圍太大時會對半切割，再用combine合併兩半的結果。
+     */
+    private static final class ChecksumTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 要計算的緩衝區，如果是計算檔案通道就是null。
+         */
+        private final ByteBuffer buffer;
+        /**
+         * 要計算的檔案通道，如果是計算緩衝區就是null。
+         */
+        private final FileChannel channel;
+        /**
+         * 範圍，不包含to。
+         */
+        private final long from, to;
+        /**
+         * 不再切割的範圍大小。
+         */
+        private final long threshold;
+
+        ChecksumTask(final ByteBuffer buffer, final FileChannel channel, final long from, final long to, final long threshold) {
+            this.buffer = buffer;
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Long compute() {
+            final long length = to - from;
+            if (length > threshold) {
+                final long middle = from + length / 2;
+                final ChecksumTask left = new ChecksumTask(buffer, channel, from, middle, threshold);
+                left.fork();
+                final long right = new ChecksumTask(buffer, channel, middle, to, threshold).compute();
+                return combine(left.join(), right, to - middle);
+            }
+            if (buffer != null) {
+                final ByteBuffer range = buffer.duplicate();
+                range.limit((int) to).position((int) from);
+                final CRC64 crc64 = new CRC64();
+                crc64.update(range);
+                return crc64.getValue();
+            }
+            try {
+                final byte[] array = new byte[(int) Math.min(length, READ_BUFFER_SIZE)];
+                final ByteBuffer chunk = ByteBuffer.wrap(array);
+                long crc = ~0L;
+                long position = from;
+                while (position < to) {
+                    chunk.clear().limit((int) Math.min(array.length, to - position));
+                    final int c = channel.read(chunk, position);
+                    if (c < 0) {
+                        break;
+                    }
+                    crc = update(crc, array, 0, c);
+                    position += c;
+                }
+                return ~crc;
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
+    }
 
     // -----類別常數-----
     private static final long POLY64REV = 0x42F0E1EBA9EA3693L;
-    private static final long[] LOOKUPTABLE = new long[256];
+    /**
+     * getHash傳回的雜湊值長度(位元組)。
+     */
+    public static final int HASH_LENGTH = 8;
+    /**
+     * 平行計算時，每個工作最少要處理的資料量(位元組)。
+     */
+    public static final int MIN_PARALLEL_LENGTH = 1 << 20;
+    /**
+     * 從檔案通道讀取資料時使用的緩衝空間大小。
+     */
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    /**
+     * X_POW_8N[k]為x^(8 * 2^k) mod P，也就是在CRC餘數後面接2^k個0的位元組時要乘上的多項式。
+     */
+    private static final long[] X_POW_8N = new long[64];
+    /**
+     * 查詢表格的數量。
+     */
+    private static final int SLICES = 16;
+    /**
+     * 查詢表格，依序存放16個256個元素的表格。第k個表格的第i個元素為位元組i後面再接k個0的CRC餘數，第0個表格就是一般逐位元組計算時使用的表格。
+     */
+    private static final long[] TABLE = new long[SLICES * 256];
 
     // -----類別初始-----
     static {
-        final long mask1 = 1L << 63;
-        long mask2 = 1;
-        for (int i = 1; i < 64; ++i) {
-            mask2 = (mask2 << 1) + 1;
-        }
         for (int i = 0; i < 256; ++i) {
-            long v = i;
-            for (int j = 0; j < 64; ++j) {
-                if ((v & mask1) == 0) {
+            long v = (long) i << 56;
+            for (int j = 0; j < 8; ++j) {
+                if ((v & (1L << 63)) == 0) {
                     v = v << 1;
                 } else {
-                    v = v << 1;
-                    v = v ^ POLY64REV;
+                    v = (v << 1) ^ POLY64REV;
                 }
             }
-            LOOKUPTABLE[i] = v & mask2;
+            TABLE[i] = v;
+        }
+        for (int i = 256; i < SLICES * 256; ++i) {
+            final long v = TABLE[i - 256];
+            TABLE[i] = (v << 8) ^ TABLE[(int) (v >>> 56)];
+        }
+        X_POW_8N[0] = 1L << 8;
+        for (int k = 1; k < 64; ++k) {
+            X_POW_8N[k] = multiply(X_POW_8N[k - 1], X_POW_8N[k - 1]);
         }
     }
 
+    // -----物件變數-----
+    /**
+     * 目前的CRC餘數。
+     */
+    private long crc = ~0L;
+
+    // -----建構子-----
+    /**
+     * 建構子，建立可以分多次加入資料的CRC64物件。
+     */
+    public CRC64() {
+    }
+
     // -----類別方法-----
     /**
      * 取得資料的CRC64雜湊值。
@@ -60,28 +187,343 @@ public class CRC64 {
         if (data == null) {
             return null;
         }
-        long sum = ~0;
-        for (final byte b : data) {
-            final int lookupidx = (int) (((sum >>> 56) ^ b) & 0xff);
-            sum = (sum << 8) ^ LOOKUPTABLE[lookupidx];
-        }
-        sum = sum ^ ~0;
-        final byte[] crc64 = new byte[8];
-        crc64[0] = (byte) (sum >>> 56);
-        crc64[1] = (byte) ((sum << 8) >>> 56);
-        crc64[2] = (byte) ((sum << 16) >>> 56);
-        crc64[3] = (byte) ((sum << 24) >>> 56);
-        crc64[4] = (byte) ((sum << 32) >>> 56);
-        crc64[5] = (byte) ((sum << 40) >>> 56);
-        crc64[6] = (byte) ((sum << 48) >>> 56);
-        crc64[7] = (byte) ((sum << 56) >>> 56);
+        return getHash(data, 0, data.length);
+    }
+
+    /**
+     * 取得一段資料的CRC64雜湊值，不會複製資料。
+     *
+     * @param data 傳入要雜湊的資料
+     * @param offset 傳入資料的起始位置
+     * @param length 傳入資料的長度
+     * @return 傳回雜湊後資料內容
+     */
+    public static byte[] getHash(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        final byte[] crc64 = new byte[HASH_LENGTH];
+        putHash(checksum(data, offset, length), crc64, 0);
         return crc64;
     }
 
-    // -----建構子-----
     /**
-     * 私有建構子，無法給外界實體化。
+     * 將雜湊值以big-endian的方式寫入陣列。
+     *
+     * @param sum 傳入雜湊值
+     * @param output 傳入輸出的陣列
+     * @param offset 傳入輸出陣列的起始位置
+     */
+    private static void putHash(final long sum, final byte[] output, final int offset) {
+        output[offset] = (byte) (sum >>> 56);
+        output[offset + 1] = (byte) ((sum << 8) >>> 56);
+        output[offset + 2] = (byte) ((sum << 16) >>> 56);
+        output[offset + 3] = (byte) ((sum << 24) >>> 56);
+        output[offset + 4] = (byte) ((sum << 32) >>> 56);
+        output[offset + 5] = (byte) ((sum << 40) >>> 56);
+        output[offset + 6] = (byte) ((sum << 48) >>> 56);
+        output[offset + 7] = (byte) ((sum << 56) >>> 56);
+    }
+
+    /**
+     * 批次取得多筆資料的CRC64雜湊值，結果依序連續存放在同一個陣列中。
+     *
+     * @param data 傳入要雜湊的資料，每筆資料都不能是null
+     * @return 傳回雜湊值，第i筆資料的雜湊值位於i * HASH_LENGTH，和getHash傳回的8個位元組相同
+     */
+    public static byte[] hashAll(final byte[][] data) {
+        return hashAll(data, null);
+    }
+
+    /**
+     * 批次取得多筆資料的CRC64雜湊值，並將資料分成數個部份交給執行緒池平行處理。結果依序連續存放在同一個陣列中。
+     *
+     * @param data 傳入要雜湊的資料，每筆資料都不能是null
+     * @param executor 傳入執行緒池，如果是null就在目前的執行緒處理
+     * @return 傳回雜湊值，第i筆資料的雜湊值位於i * HASH_LENGTH，和getHash傳回的8個位元組相同
+     */
+    public static byte[] hashAll(final byte[][] data, final ExecutorService executor) {
+        final byte[] output = new byte[data.length * HASH_LENGTH];
+        Batches.run(data.length, executor, new Batches.Range() {
+            @Override
+            public void run(final int from, final int to) {
+                for (int i = from; i < to; ++i) {
+                    final byte[] item = data[i];
+                    putHash(~update(~0L, item, 0, item.length), output, i * HASH_LENGTH);
+                }
+            }
+        });
+        return output;
+    }
+
+    /**
+     * 批次取得以欄位方式存放之多筆資料的CRC64雜湊值，結果依序連續存放在同一個陣列中。
+     *
+     * @param data 傳入要雜湊的資料
+     * @return 傳回雜湊值，第i筆資料的雜湊值位於i * HASH_LENGTH，和getHash傳回的8個位元組相同
+     */
+    public static byte[] hashAll(final PackedData data) {
+        return hashAll(data, null);
+    }
+
+    /**
+     * 批次取得以欄位方式存放之多筆資料的CRC64雜湊值，並將資料分成數個部份交給執行緒池平行處理。結果依序連續存放在同一個陣列中。
+     *
+     * @param data 傳入要雜湊的資料
+     * @param executor 傳入執行緒池，如果是null就在目前的執行緒處理
+     * @return 傳回雜湊值，第i筆資料的雜湊值位於i * HASH_LENGTH，和getHash傳回的8個位元組相同
+     */
+    public static byte[] hashAll(final PackedData data, final ExecutorService executor) {
+        final byte[] array = data.getData();
+        final int[] offsets = data.getOffsets();
+        final int size = data.size();
+        final byte[] output = new byte[size * HASH_LENGTH];
+        Batches.run(size, executor, new Batches.Range() {
+            @Override
+            public void run(final int from, final int to) {
+                for (int i = from; i < to; ++i) {
+                    putHash(~update(~0L, array, offsets[i], offsets[i + 1] - offsets[i]), output, i * HASH_LENGTH);
+                }
+            }
+        });
+        return output;
+    }
+
+    /**
+     * 取得資料的CRC64雜湊值，不會產生新的物件。結果和getHash傳回的8個位元組(big-endian)相同。
+     *
+     * @param data 傳入要雜湊的資料
+     * @param offset 傳入資料的起始位置
+     * @param length 傳入資料的長度
+     * @return 傳回雜湊值
+     */
+    public static long checksum(final byte[] data, final int offset, final int length) {
+        return ~update(~0L, data, offset, length);
+    }
+
+    /**
+     * <p>
+     * 合併兩段資料的CRC64雜湊值。傳回的值和將兩段資料接在一起之後計算出來的雜湊值相同，不需要用到資料本身。</p>
+     *
+     * <p>
+     * 在CRC餘數後面接n個0的位元組，相當於在GF(2)上乘上一個64x64的矩陣的n次方，也就是乘上x^(8n) mod P。這裡用事先算好的x^(8 * 2^k) mod P來做平方乘法，只需要O(log n)次64位元的多項式乘法。</p>
+     *
+     * @param crcA 傳入第一段資料的雜湊值
+     * @param crcB 傳入第二段資料的雜湊值
+     * @param lengthB 傳入第二段資料的長度(位元組)
+     * @return 傳回兩段資料接在一起的雜湊值
+     */
+    public static long combine(long crcA, final long crcB, long lengthB) {
+        if (lengthB < 0) {
+            throw new RuntimeException("The length must not be negative!");
+        }
+        for (int k = 0; lengthB != 0; ++k, lengthB >>>= 1) {
+            if ((lengthB & 1) != 0) {
+                crcA = multiply(crcA, X_POW_8N[k]);
+            }
+        }
+        return crcA ^ crcB;
+    }
+
+    /**
+     * 計算兩個多項式在GF(2)上相乘再除以CRC64多項式的餘數。最高位元為x^63的係數。
+     *
+     * @param a 傳入第一個多項式
+     * @param b 傳入第二個多項式
+     * @return 傳回餘數
+     */
+    private static long multiply(final long a, final long b) {
+        long product = 0;
+        for (int i = 63; i >= 0; --i) {
+            product = (product << 1) ^ (product < 0 ? POLY64REV : 0);
+            if (((a >>> i) & 1) != 0) {
+                product ^= b;
+            }
+        }
+        return product;
+    }
+
+    /**
+     * 使用預設的ForkJoinPool平行計算緩衝區中從position到limit之間之資料的CRC64雜湊值，完成後position會移到limit。
+     *
+     * @param buffer 傳入要雜湊的資料
+     * @return 傳回雜湊值，和getHash傳回的8個位元組(big-endian)相同
+     */
+    public static long checksumParallel(final ByteBuffer buffer) {
+        return checksumParallel(buffer, null);
+    }
+
+    /**
+     * 平行計算緩衝區中從position到limit之間之資料的CRC64雜湊值，完成後position會移到limit。
+     *
+     * @param buffer 傳入要雜湊的資料
+     * @param pool 傳入ForkJoinPool，如果是null就使用預設的ForkJoinPool
+     * @return 傳回雜湊值，和getHash傳回的8個位元組(big-endian)相同
+     */
+    public static long checksumParallel(final ByteBuffer buffer, final ForkJoinPool pool) {
+        final ForkJoinPool p = pool != null ? pool : Batches.getDefaultPool();
+        final int position = buffer.position();
+        final int limit = buffer.limit();
+        final long value = p.invoke(new ChecksumTask(buffer, null, position, limit, threshold(limit - position, p)));
+        buffer.position(limit);
+        return value;
+    }
+
+    /**
+     * 使用預設的ForkJoinPool平行計算檔案通道從目前的位置到檔案結尾之資料的CRC64雜湊值，完成後位置會移到檔案結尾。
+     *
+     * @param channel 傳入要雜湊的檔案通道
+     * @return 傳回雜湊值，和getHash傳回的8個位元組(big-endian)相同
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public static long checksumParallel(final FileChannel channel) throws IOException {
+        return checksumParallel(channel, null);
+    }
+
+    /**
+     * 平行計算檔案通道從目前的位置到檔案結尾之資料的CRC64雜湊值，每個範圍各自使用位置讀取，完成後位置會移到檔案結尾。
+     *
+     * @param channel 傳入要雜湊的檔案通道
+     * @param pool 傳入ForkJoinPool，如果是null就使用預設的ForkJoinPool
+     * @return 傳回雜湊值，和getHash傳回的8個位元組(big-endian)相同
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public static long checksumParallel(final FileChannel channel, final ForkJoinPool pool) throws IOException {
+        final ForkJoinPool p = pool != null ? pool : Batches.getDefaultPool();
+        final long position = channel.position();
+        final long size = Math.max(channel.size(), position);
+        final long value = p.invoke(new ChecksumTask(null, channel, position, size, threshold(size - position, p)));
+        channel.position(size);
+        return value;
+    }
+
+    /**
+     * 計算平行處理時不再切割的範圍大小，讓每個執行緒大約分到4個範圍。
+     *
+     * @param length 傳入資料的總長度
+     * @param pool 傳入ForkJoinPool
+     * @return 傳回範圍大小
+     */
+    private static long threshold(final long length, final ForkJoinPool pool) {
+        final long parts = pool.getParallelism() * 4L;
+        return Math.max(MIN_PARALLEL_LENGTH, (length + parts - 1) / parts);
+    }
+
+    /**
+     * 將資料加入CRC餘數中。每次查16個表格處理16個位元組(Slicing-by-16)。
+     *
+     * @param crc 傳入目前的CRC餘數
+     * @param data 傳入要加入的資料
+     * @param offset 傳入資料的起始位置
+     * @param length 傳入資料的長度
+     * @return 傳回新的CRC餘數
+     */
+    private static long update(long crc, final byte[] data, final int offset, final int length) {
+        final long[] t = TABLE;
+        final int end = offset + length;
+        int i = offset;
+        for (final int end16 = end - 15; i < end16; i += 16) {
+            crc ^= ((long) data[i] << 56) | ((data[i + 1] & 0xFFL) << 48) | ((data[i + 2] & 0xFFL) << 40) | ((data[i + 3] & 0xFFL) << 32) | ((data[i + 4] & 0xFFL) << 24) | ((data[i + 5] & 0xFFL) << 16) | ((data[i + 6] & 0xFFL) << 8) | (data[i + 7] & 0xFFL);
+            crc = t[3840 + (int) (crc >>> 56)] ^ t[3584 + ((int) (crc >>> 48) & 0xFF)] ^ t[3328 + ((int) (crc >>> 40) & 0xFF)] ^ t[3072 + ((int) (crc >>> 32) & 0xFF)]
+                    ^ t[2816 + ((int) (crc >>> 24) & 0xFF)] ^ t[2560 + ((int) (crc >>> 16) & 0xFF)] ^ t[2304 + ((int) (crc >>> 8) & 0xFF)] ^ t[2048 + ((int) crc & 0xFF)]
+                    ^ t[1792 + (data[i + 8] & 0xFF)] ^ t[1536 + (data[i + 9] & 0xFF)] ^ t[1280 + (data[i + 10] & 0xFF)] ^ t[1024 + (data[i + 11] & 0xFF)]
+                    ^ t[768 + (data[i + 12] & 0xFF)] ^ t[512 + (data[i + 13] & 0xFF)] ^ t[256 + (data[i + 14] & 0xFF)] ^ t[data[i + 15] & 0xFF];
+        }
+        for (; i < end; ++i) {
+            crc = (crc << 8) ^ t[(int) ((crc >>> 56) ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    /**
+     * 將直接配置之緩衝區中的資料加入CRC餘數中。每次查16個表格處理16個位元組(Slicing-by-16)。
+     *
+     * @param crc 傳入目前的CRC餘數
+     * @param buffer 傳入要加入的資料，必須是big-endian
+     * @return 傳回新的CRC餘數
+     */
+    private static long update(long crc, final ByteBuffer buffer) {
+        final long[] t = TABLE;
+        while (buffer.remaining() >= 16) {
+            crc ^= buffer.getLong();
+            final long next = buffer.getLong();
+            crc = t[3840 + (int) (crc >>> 56)] ^ t[3584 + ((int) (crc >>> 48) & 0xFF)] ^ t[3328 + ((int) (crc >>> 40) & 0xFF)] ^ t[3072 + ((int) (crc >>> 32) & 0xFF)]
+                    ^ t[2816 + ((int) (crc >>> 24) & 0xFF)] ^ t[2560 + ((int) (crc >>> 16) & 0xFF)] ^ t[2304 + ((int) (crc >>> 8) & 0xFF)] ^ t[2048 + ((int) crc & 0xFF)]
+                    ^ t[1792 + (int) (next >>> 56)] ^ t[1536 + ((int) (next >>> 48) & 0xFF)] ^ t[1280 + ((int) (next >>> 40) & 0xFF)] ^ t[1024 + ((int) (next >>> 32) & 0xFF)]
+                    ^ t[768 + ((int) (next >>> 24) & 0xFF)] ^ t[512 + ((int) (next >>> 16) & 0xFF)] ^ t[256 + ((int) (next >>> 8) & 0xFF)] ^ t[(int) next & 0xFF];
+        }
+        while (buffer.hasRemaining()) {
+            crc = (crc << 8) ^ t[(int) ((crc >>> 56) ^ buffer.get()) & 0xFF];
+        }
+        return crc;
+    }
+
+    // -----物件方法-----
+    /**
+     * 加入一個位元組。
+     *
+     * @param b 傳入要加入的位元組，只會使用最低的8個位元
+     */
+    @Override
+    public void update(final int b) {
+        crc = (crc << 8) ^ TABLE[(int) ((crc >>> 56) ^ b) & 0xFF];
+    }
+
+    /**
+     * 加入資料。
+     *
+     * @param b 傳入要加入的資料
+     * @param off 傳入資料的起始位置
+     * @param len 傳入資料的長度
+     */
+    @Override
+    public void update(final byte[] b, final int off, final int len) {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        crc = update(crc, b, off, len);
+    }
+
+    /**
+     * 加入資料。
+     *
+     * @param b 傳入要加入的資料
+     */
+    public void update(final byte[] b) {
+        crc = update(crc, b, 0, b.length);
+    }
+
+    /**
+     * 加入緩衝區中從position到limit之間的資料，完成後position會移到limit。
+     *
+     * @param buffer 傳入要加入的資料
+     */
+    public void update(final ByteBuffer buffer) {
+        final int position = buffer.position();
+        final int limit = buffer.limit();
+        if (buffer.hasArray()) {
+            crc = update(crc, buffer.array(), buffer.arrayOffset() + position, limit - position);
+        } else {
+            crc = update(crc, buffer.duplicate().order(ByteOrder.BIG_ENDIAN));
+        }
+        buffer.position(limit);
+    }
+
+    /**
+     * 取得目前的CRC64雜湊值。
+     *
+     * @return 傳回雜湊值，和getHash傳回的8個位元組(big-endian)相同
+     */
+    @Override
+    public long getValue() {
+        return ~crc;
+    }
+
+    /**
+     * 重設成還沒加入任何資料的狀態。
      */
-    private CRC64() {
+    @Override
+    public void reset() {
+        crc = ~0L;
     }
 }
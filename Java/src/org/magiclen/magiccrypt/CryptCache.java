@@ -0,0 +1,262 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.magiclen.magiccrypt.lib.StripedCounter;
+
+/**
+ * <p>
+ * 記住加密和解密結果的快取。MagicCrypt使用固定的IV，因此相同的字串每次加密的結果都相同，重複出現的字串不需要再進行加/解密。</p>
+ *
+ * <p>
+ * 快取的總大小不會超過指定的記憶體預算，加密和解密的結果共用同一個預算。空間不足時使用CLOCK演算法移除項目：最近被使用過的項目會得到第二次機會，其它的項目依照加入的順序被移除。查詢不需要上鎖，只有加入和移除項目時才會上鎖。</p>
+ *
+ * <p>
+ * 快取物件由MagicCrypt的enableCache方法建立，每個快取只屬於一個MagicCrypt物件。</p>
+ *
+ * @author Magic Len
+ * @see MagicCrypt#enableCache(long)
+ */
+public final class CryptCache {
+
+    // -----類別類別-----
+    /**
+     * 快取中的一個項目。
+     */
+    private static final class Node {
+
+        /**
+         * 輸入的字串。
+         */
+        final String key;
+        /**
+         * 輸出的字串。
+         */
+        final String value;
+        /**
+         * 是否為加密的結果。
+         */
+        final boolean encrypt;
+        /**
+         * 估計的記憶體用量(位元組)。
+         */
+        final long cost;
+        /**
+         * 加入快取或是上一次被CLOCK指針經過之後，是否有被使用過。
+         */
+        volatile boolean referenced;
+
+        Node(final String key, final String value, final boolean encrypt, final long cost) {
+            this.key = key;
+            this.value = value;
+            this.encrypt = encrypt;
+            this.cost = cost;
+        }
+    }
+
+    // -----類別常數-----
+    /**
+     * 每個項目除了字串內容之外，估計額外使用的記憶體(位元組)，包含兩個String物件、雜湊表的節點和這個項目本身。
+     */
+    private static final long ENTRY_OVERHEAD = 160;
+
+    // -----物件常數-----
+    /**
+     * 記憶體預算(位元組)。
+     */
+    private final long maxBytes;
+    /**
+     * 明文到密文的對應。
+     */
+    private final ConcurrentHashMap<String, Node> encrypted = new ConcurrentHashMap<>();
+    /**
+     * 密文到明文的對應。
+     */
+    private final ConcurrentHashMap<String, Node> decrypted = new ConcurrentHashMap<>();
+    /**
+     * CLOCK的環狀佇列，指針在佇列的開頭。
+     */
+    private final ArrayDeque<Node> clock = new ArrayDeque<>();
+    /**
+     * 加入和移除項目時使用的鎖。
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * 命中次數。
+     */
+    private final StripedCounter hits = new StripedCounter();
+    /**
+     * 未命中次數。
+     */
+    private final StripedCounter misses = new StripedCounter();
+    /**
+     * 因空間不足而移除項目的次數。
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    // -----物件變數-----
+    /**
+     * 目前估計的記憶體用量(位元組)，只在持有鎖的時候修改。
+     */
+    private volatile long usedBytes;
+
+    // -----建構子-----
+    /**
+     * 建構子。
+     *
+     * @param maxBytes 傳入記憶體預算(位元組)
+     */
+    CryptCache(final long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new RuntimeException("The memory budget of a cache must be positive!");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    // -----物件方法-----
+    /**
+     * 查詢快取中的結果。
+     *
+     * @param key 傳入輸入的字串
+     * @param encrypt 傳入是否要查詢加密的結果
+     * @return 傳回輸出的字串，如果快取中沒有，傳回null
+     */
+    String get(final String key, final boolean encrypt) {
+        final Node node = (encrypt ? encrypted : decrypted).get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        hits.increment();
+        return node.value;
+    }
+
+    /**
+     * 將結果加入快取。空間不足時，會以CLOCK演算法移除項目。太大的項目不會被加入。
+     *
+     * @param key 傳入輸入的字串
+     * @param value 傳入輸出的字串
+     * @param encrypt 傳入是否為加密的結果
+     */
+    void put(final String key, final String value, final boolean encrypt) {
+        final long cost = ENTRY_OVERHEAD + 2L * (key.length() + value.length());
+        if (cost > maxBytes / 8) {
+            return;
+        }
+        final ConcurrentHashMap<String, Node> map = encrypt ? encrypted : decrypted;
+        final Node node = new Node(key, value, encrypt, cost);
+        lock.lock();
+        try {
+            if (map.putIfAbsent(key, node) != null) {
+                return;
+            }
+            long used = usedBytes + cost;
+            while (used > maxBytes) {
+                final Node head = clock.pollFirst();
+                if (head.referenced) {
+                    head.referenced = false;
+                    clock.addLast(head);
+                } else {
+                    (head.encrypt ? encrypted : decrypted).remove(head.key, head);
+                    used -= head.cost;
+                    evictions.incrementAndGet();
+                }
+            }
+            clock.addLast(node);
+            usedBytes = used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 清空快取。
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            encrypted.clear();
+            decrypted.clear();
+            clock.clear();
+            usedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取得記憶體預算。
+     *
+     * @return 傳回記憶體預算(位元組)
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 取得目前估計的記憶體用量。
+     *
+     * @return 傳回記憶體用量(位元組)
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 取得目前快取中的項目數量。
+     *
+     * @return 傳回加密和解密結果的總數
+     */
+    public int size() {
+        return encrypted.size() + decrypted.size();
+    }
+
+    /**
+     * 取得命中次數。
+     *
+     * @return 傳回命中次數
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 取得未命中次數。
+     *
+     * @return 傳回未命中次數
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 取得因空間不足而移除項目的次數。
+     *
+     * @return 傳回移除次數
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.GeneralSecurityException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import org.magiclen.magiccrypt.lib.CipherPool;
+import org.magiclen.magiccrypt.lib.Crypt;
+
+/**
+ * 以固定大小的緩衝區，串流加密文字成Base64編碼的密文，或是串流解密Base64編碼的密文。
+ *
+ * @author Magic Len
+ */
+final class CryptStreams {
+
+    // -----類別類別-----
+    /**
+     * 將位元組以ISO-8859-1解碼後寫到Writer的輸出資料流。
+     */
+    private static final class WriterOutputStream extends OutputStream {
+
+        /**
+         * 輸出的Writer。
+         */
+        private final Writer out;
+        /**
+         * 字元的暫存陣列。
+         */
+        private final char[] chars = new char[Crypt.BUFFER_SIZE];
+
+        /**
+         * 建構子。
+         *
+         * @param out 傳入輸出的Writer
+         */
+        WriterOutputStream(final Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b & 0xFF);
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final int n = Math.min(len, chars.length);
+                for (int i = 0; i < n; ++i) {
+                    chars[i] = (char) (b[off + i] & 0xFF);
+                }
+                out.write(chars, 0, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * 從Reader讀取字元，並以ISO-8859-1編碼的輸入資料流。無法編碼的字元會被替換成「?」。
+     */
+    private static final class ReaderInputStream extends InputStream {
+
+        /**
+         * 輸入的Reader。
+         */
+        private final Reader in;
+        /**
+         * 字元的暫存陣列。
+         */
+        private final char[] chars = new char[Crypt.BUFFER_SIZE];
+
+        /**
+         * 建構子。
+         *
+         * @param in 傳入輸入的Reader
+         */
+        ReaderInputStream(final Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int c = in.read();
+            return c <= 0xFF ? c : '?';
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int n = in.read(chars, 0, Math.min(len, chars.length));
+            for (int i = 0; i < n; ++i) {
+                final char c = chars[i];
+                b[off + i] = c <= 0xFF ? (byte) c : (byte) '?';
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * 加密寫入的資料，再寫到輸出資料流。關閉時才會寫出最後一個區塊，並將Cipher物件歸還給池子，即使最後一個區塊無法寫出也一樣。
+     */
+    private static final class EncryptOutputStream extends OutputStream {
+
+        /**
+         * 借出Cipher物件的池子。
+         */
+        private final CipherPool pool;
+        /**
+         * 已初始化為加密模式的Cipher物件。
+         */
+        private final Cipher cipher;
+        /**
+         * 輸出的資料流。
+         */
+        private final OutputStream out;
+        /**
+         * 密文的暫存陣列。
+         */
+        private final byte[] output;
+        /**
+         * 只有一個位元組的暫存陣列。
+         */
+        private final byte[] single = new byte[1];
+        /**
+         * 資料流是否已經關閉。
+         */
+        private boolean closed;
+
+        /**
+         * 建構子。
+         *
+         * @param pool 傳入借出Cipher物件的池子
+         * @param cipher 傳入已初始化為加密模式的Cipher物件
+         * @param out 傳入輸出的資料流
+         */
+        EncryptOutputStream(final CipherPool pool, final Cipher cipher, final OutputStream out) {
+            this.pool = pool;
+            this.cipher = cipher;
+            this.out = out;
+            output = new byte[Crypt.BUFFER_SIZE + 2 * cipher.getBlockSize()];
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+            try {
+                while (len > 0) {
+                    final int n = Math.min(len, Crypt.BUFFER_SIZE);
+                    out.write(output, 0, cipher.update(b, off, n, output, 0));
+                    off += n;
+                    len -= n;
+                }
+            } catch (final GeneralSecurityException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean finished = false;
+            try (final OutputStream os = out) {
+                final int length = cipher.doFinal(output, 0);
+                finished = true;
+                os.write(output, 0, length);
+            } catch (final GeneralSecurityException ex) {
+                throw new RuntimeException(ex.getMessage());
+            } finally {
+                if (finished) {
+                    pool.release(cipher, Cipher.ENCRYPT_MODE);
+                } else {
+                    pool.recycle(cipher, Cipher.ENCRYPT_MODE);
+                }
+            }
+        }
+    }
+
+    /**
+     * 從輸入資料流讀取密文並解密的資料流。讀到結尾時會處理最後一個區塊，並將Cipher物件歸還給池子；在讀到結尾之前關閉時，也會將Cipher物件歸還給池子。
+     */
+    private static final class DecryptInputStream extends InputStream {
+
+        /**
+         * 借出Cipher物件的池子。
+         */
+        private final CipherPool pool;
+        /**
+         * 已初始化為解密模式的Cipher物件。
+         */
+        private final Cipher cipher;
+        /**
+         * 輸入的資料流。
+         */
+        private final InputStream in;
+        /**
+         * 密文的暫存陣列。
+         */
+        private final byte[] input = new byte[Crypt.BUFFER_SIZE];
+        /**
+         * 明文的暫存陣列。
+         */
+        private final byte[] output;
+        /**
+         * 只有一個位元組的暫存陣列。
+         */
+        private final byte[] single = new byte[1];
+        /**
+         * 明文暫存陣列中下一個可以讀取的位置。
+         */
+        private int position;
+        /**
+         * 明文暫存陣列中資料的結束位置。
+         */
+        private int limit;
+        /**
+         * 是否已經讀到輸入資料流的結尾。
+         */
+        private boolean eof;
+        /**
+         * Cipher物件是否已經歸還給池子。
+         */
+        private boolean released;
+        /**
+         * 資料流是否已經關閉。
+         */
+        private boolean closed;
+
+        /**
+         * 建構子。
+         *
+         * @param pool 傳入借出Cipher物件的池子
+         * @param cipher 傳入已初始化為解密模式的Cipher物件
+         * @param in 傳入輸入的資料流
+         */
+        DecryptInputStream(final CipherPool pool, final Cipher cipher, final InputStream in) {
+            this.pool = pool;
+            this.cipher = cipher;
+            this.in = in;
+            output = new byte[Crypt.BUFFER_SIZE + 2 * cipher.getBlockSize()];
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (position == limit) {
+                if (eof) {
+                    return -1;
+                }
+                fill();
+            }
+            final int n = Math.min(len, limit - position);
+            System.arraycopy(output, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * 讀取下一段密文並解密到明文暫存陣列中。
+         *
+         * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+         */
+        private void fill() throws IOException {
+            position = 0;
+            try {
+                final int c = in.read(input);
+                if (c >= 0) {
+                    limit = cipher.update(input, 0, c, output, 0);
+                    return;
+                }
+                eof = true;
+                released = true;
+                try {
+                    limit = cipher.doFinal(output, 0);
+                    pool.release(cipher, Cipher.DECRYPT_MODE);
+                } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+                    // 和解密資料流時一樣忽略最後一個區塊的錯誤，Cipher物件要重新初始化才能再使用
+                    limit = 0;
+                    pool.recycle(cipher, Cipher.DECRYPT_MODE);
+                }
+            } catch (final GeneralSecurityException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    in.close();
+                } finally {
+                    if (!released) {
+                        released = true;
+                        pool.recycle(cipher, Cipher.DECRYPT_MODE);
+                    }
+                }
+            }
+        }
+    }
+
+    // -----類別方法-----
+    /**
+     * 建立加密文字的Writer。寫入的文字會以UTF-8編碼後加密，再以Base64編碼寫到輸出的Writer。
+     *
+     * @param pool 傳入借出Cipher物件的池子
+     * @param output 傳入輸出的Writer
+     * @return 傳回加密文字的Writer
+     * @throws java.security.GeneralSecurityException 當無法建立或是初始化Cipher物件時，會拋出這個例外
+     */
+    static Writer encryptWriter(final CipherPool pool, final Writer output) throws GeneralSecurityException {
+        final Cipher cipher = pool.borrow(Cipher.ENCRYPT_MODE);
+        final OutputStream base64 = Base64.getEncoder().wrap(new WriterOutputStream(output));
+        return new OutputStreamWriter(new EncryptOutputStream(pool, cipher, base64), TextCodec.UTF_8);
+    }
+
+    /**
+     * 建立解密文字的Reader。從輸入的Reader讀取Base64編碼的密文，解碼並解密後，再以UTF-8解碼成文字。
+     *
+     * @param pool 傳入借出Cipher物件的池子
+     * @param input 傳入輸入的Reader
+     * @return 傳回解密文字的Reader
+     * @throws java.security.GeneralSecurityException 當無法建立或是初始化Cipher物件時，會拋出這個例外
+     */
+    static Reader decryptReader(final CipherPool pool, final Reader input) throws GeneralSecurityException {
+        final Cipher cipher = pool.borrow(Cipher.DECRYPT_MODE);
+        final InputStream base64 = Base64.getDecoder().wrap(new ReaderInputStream(input));
+        return new InputStreamReader(new DecryptInputStream(pool, cipher, base64), TextCodec.UTF_8);
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private CryptStreams() {
+    }
+}
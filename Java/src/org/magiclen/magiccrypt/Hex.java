@@ -0,0 +1,288 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 以查表的方式進行16進制的編碼和解碼。編碼使用小寫字母，解碼時大小寫字母都可以接受。
+ *
+ * @author Magic Len
+ */
+public class Hex {
+
+    // -----類別常數-----
+    /**
+     * 每個位元組編碼後的兩個字元，依位元組的值連續存放。
+     */
+    private static final char[] PAIRS = new char[512];
+    /**
+     * 每個ASCII字元代表的16進制數值，不是16進制的字元為-1。
+     */
+    private static final int[] VALUES = new int[128];
+
+    // -----類別初始-----
+    static {
+        final char[] digits = "0123456789abcdef".toCharArray();
+        for (int i = 0; i < 256; ++i) {
+            PAIRS[i << 1] = digits[i >>> 4];
+            PAIRS[(i << 1) + 1] = digits[i & 0xF];
+        }
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i < 16; ++i) {
+            VALUES[digits[i]] = i;
+            VALUES[Character.toUpperCase(digits[i])] = i;
+        }
+    }
+
+    // -----類別方法-----
+    /**
+     * 將位元組陣列資料轉成16進制的字串。
+     *
+     * @param data 傳入位元組陣列資料
+     * @return 傳回16進制的字串
+     */
+    public static String encode(final byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        final char[] chars = new char[data.length << 1];
+        encode(data, 0, data.length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 將一段位元組陣列資料編碼成16進制的字元，從dst的dp位置開始存放。
+     *
+     * @param src 傳入要編碼的資料
+     * @param offset 傳入資料的起始位置
+     * @param length 傳入資料的長度
+     * @param dst 傳入輸出的字元陣列，長度必須至少有dp + length * 2
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個字元的下一個位置
+     */
+    public static int encode(final byte[] src, final int offset, final int length, final char[] dst, int dp) {
+        final int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            final int p = (src[i] & 0xFF) << 1;
+            dst[dp++] = PAIRS[p];
+            dst[dp++] = PAIRS[p + 1];
+        }
+        return dp;
+    }
+
+    /**
+     * 將一段位元組陣列資料編碼成16進制字元的ASCII編碼，從dst的dp位置開始存放。
+     *
+     * @param src 傳入要編碼的資料
+     * @param offset 傳入資料的起始位置
+     * @param length 傳入資料的長度
+     * @param dst 傳入輸出的位元組陣列，長度必須至少有dp + length * 2
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    public static int encode(final byte[] src, final int offset, final int length, final byte[] dst, int dp) {
+        final int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            final int p = (src[i] & 0xFF) << 1;
+            dst[dp++] = (byte) PAIRS[p];
+            dst[dp++] = (byte) PAIRS[p + 1];
+        }
+        return dp;
+    }
+
+    /**
+     * 將緩衝區中從position到limit之間的資料編碼成16進制字元的ASCII編碼，從dst的position開始寫入。
+     *
+     * @param src 傳入要編碼的資料
+     * @param dst 傳入輸出的緩衝區
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    public static int encode(final ByteBuffer src, final ByteBuffer dst) {
+        final int length = src.remaining();
+        final int hexLength = length << 1;
+        if (dst.remaining() < hexLength) {
+            throw new RuntimeException("The output buffer is too small.");
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            final int position = src.position();
+            final int dstPosition = dst.position();
+            encode(src.array(), src.arrayOffset() + position, length, dst.array(), dst.arrayOffset() + dstPosition);
+            src.position(position + length);
+            dst.position(dstPosition + hexLength);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                final int p = (src.get() & 0xFF) << 1;
+                dst.put((byte) PAIRS[p]);
+                dst.put((byte) PAIRS[p + 1]);
+            }
+        }
+        return hexLength;
+    }
+
+    /**
+     * 將16進制的字串轉成位元組陣列資料。
+     *
+     * @param hex 傳入16進制的字串
+     * @return 傳回位元組陣列資料
+     */
+    public static byte[] decode(final CharSequence hex) {
+        if (hex == null) {
+            return null;
+        }
+        final int length = hex.length();
+        final byte[] data = new byte[decodedLength(length)];
+        decode(hex, 0, length, data, 0);
+        return data;
+    }
+
+    /**
+     * 將一段16進制的字元解碼，從dst的dp位置開始存放。
+     *
+     * @param hex 傳入16進制的字元
+     * @param offset 傳入字元的起始位置
+     * @param length 傳入字元的長度，必須是偶數
+     * @param dst 傳入輸出的位元組陣列，長度必須至少有dp + length / 2
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    public static int decode(final CharSequence hex, final int offset, final int length, final byte[] dst, int dp) {
+        decodedLength(length);
+        final int end = offset + length;
+        for (int i = offset; i < end; i += 2) {
+            dst[dp++] = (byte) decode(hex.charAt(i), hex.charAt(i + 1), i);
+        }
+        return dp;
+    }
+
+    /**
+     * 將一段16進制的字元解碼，從dst的dp位置開始存放。
+     *
+     * @param hex 傳入16進制的字元
+     * @param offset 傳入字元的起始位置
+     * @param length 傳入字元的長度，必須是偶數
+     * @param dst 傳入輸出的位元組陣列，長度必須至少有dp + length / 2
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    public static int decode(final char[] hex, final int offset, final int length, final byte[] dst, int dp) {
+        decodedLength(length);
+        final int end = offset + length;
+        for (int i = offset; i < end; i += 2) {
+            dst[dp++] = (byte) decode(hex[i], hex[i + 1], i);
+        }
+        return dp;
+    }
+
+    /**
+     * 將一段16進制字元的ASCII編碼解碼，從dst的dp位置開始存放。輸出可以和輸入使用同一個陣列，只要dp不超過offset。
+     *
+     * @param hex 傳入16進制字元的ASCII編碼
+     * @param offset 傳入資料的起始位置
+     * @param length 傳入資料的長度，必須是偶數
+     * @param dst 傳入輸出的位元組陣列，長度必須至少有dp + length / 2
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    public static int decode(final byte[] hex, final int offset, final int length, final byte[] dst, int dp) {
+        decodedLength(length);
+        final int end = offset + length;
+        for (int i = offset; i < end; i += 2) {
+            dst[dp++] = (byte) decode(hex[i] & 0xFF, hex[i + 1] & 0xFF, i);
+        }
+        return dp;
+    }
+
+    /**
+     * 將緩衝區中從position到limit之間16進制字元的ASCII編碼解碼，從dst的position開始寫入。
+     *
+     * @param src 傳入要解碼的資料
+     * @param dst 傳入輸出的緩衝區
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    public static int decode(final ByteBuffer src, final ByteBuffer dst) {
+        final int length = src.remaining();
+        final int dataLength = decodedLength(length);
+        if (dst.remaining() < dataLength) {
+            throw new RuntimeException("The output buffer is too small.");
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            final int position = src.position();
+            final int dstPosition = dst.position();
+            decode(src.array(), src.arrayOffset() + position, length, dst.array(), dst.arrayOffset() + dstPosition);
+            src.position(position + length);
+            dst.position(dstPosition + dataLength);
+        } else {
+            final int position = src.position();
+            for (int i = 0; i < length; i += 2) {
+                dst.put((byte) decode(src.get() & 0xFF, src.get() & 0xFF, position + i));
+            }
+        }
+        return dataLength;
+    }
+
+    /**
+     * 取得16進制的字元解碼後的長度。
+     *
+     * @param length 傳入字元的長度
+     * @return 傳回解碼後的長度
+     */
+    private static int decodedLength(final int length) {
+        if ((length & 1) != 0) {
+            throw new RuntimeException("The length of the hex string must be even.");
+        }
+        return length >> 1;
+    }
+
+    /**
+     * 將兩個16進制的字元轉成一個位元組的數值。
+     *
+     * @param high 傳入高位數的字元
+     * @param low 傳入低位數的字元
+     * @param index 傳入高位數的字元的位置，用來產生錯誤訊息
+     * @return 傳回位元組的數值
+     */
+    private static int decode(final int high, final int low, final int index) {
+        if ((high | low) < 128) {
+            final int value = VALUES[high] << 4 | VALUES[low];
+            if (value >= 0) {
+                return value;
+            }
+        }
+        throw illegalCharacter(high, index);
+    }
+
+    /**
+     * 建立不是16進制字元的例外。和解碼分開，讓解碼的方法可以被內聯。
+     *
+     * @param high 傳入高位數的字元
+     * @param index 傳入高位數的字元的位置
+     * @return 傳回例外
+     */
+    private static RuntimeException illegalCharacter(final int high, final int index) {
+        return new RuntimeException("Illegal hex character at " + (high >= 128 || VALUES[high] < 0 ? index : index + 1) + ".");
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private Hex() {
+    }
+}
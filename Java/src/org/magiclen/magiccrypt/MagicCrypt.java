@@ -17,39 +17,75 @@
  */
 package org.magiclen.magiccrypt;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
 import org.magiclen.magiccrypt.lib.Crypt;
 import org.magiclen.magiccrypt.lib.Crypt.CryptListener;
 import org.magiclen.magiccrypt.lib.AESCrypt;
+import org.magiclen.magiccrypt.lib.Batches;
+import org.magiclen.magiccrypt.lib.CipherCrpyt;
+import org.magiclen.magiccrypt.lib.CipherPool;
 import org.magiclen.magiccrypt.lib.DESCrypt;
+import org.magiclen.magiccrypt.lib.PackedData;
+import org.magiclen.magiccrypt.lib.SegmentedChannel;
+import org.magiclen.magiccrypt.lib.SegmentedCrypt;
 
 /**
- * DES/AES CBC 64/128/192/256位元之加密/解密，使用PKCS5填充方式。支援檔案、字串加密。
+ * DES/AES CBC 64/128/192/256位元之加密/解密，使用PKCS5填充方式。支援檔案、字串加密。同一個MagicCrypt物件可以同時被多個執行緒使用。
  *
  * @see Base64
+ * @see Hex
  * @see CRC64
  * @see Crypt
  * @see CryptListener
  * @see AESCrypt
  * @see DESCrypt
+ * @see CipherPool
  *
  * @author Magic Len
  */
 public class MagicCrypt {
 
+    // -----類別常數-----
+    /**
+     * 每個執行緒各自使用的MD5物件。
+     */
+    private static final ThreadLocal<MessageDigest> MD5 = threadLocalDigest("MD5");
+    /**
+     * 每個執行緒各自使用的SHA-256物件。
+     */
+    static final ThreadLocal<MessageDigest> SHA256 = threadLocalDigest("SHA-256");
+
     // -----物件變數-----
     /**
      * 加/解密物件。
      */
-    private Crypt crypt;
+    private CipherCrpyt crypt;
+    /**
+     * 分段加/解密物件，第一次使用時才會建立。
+     */
+    private volatile SegmentedCrypt segmentedCrypt;
+    /**
+     * 加/解密結果的快取，null表示不使用快取。
+     */
+    private volatile CryptCache cache;
 
     // -----建構子-----
     /**
@@ -86,48 +122,64 @@ public class MagicCrypt {
      * @param iv 傳入任意長度的IV字串
      */
     public MagicCrypt(String key, final int bit, final String iv) {
+        checkBit(bit);
         if (key == null) {
             key = "";
         }
-        final byte[] keyByte, ivByte;
-        switch (bit) {
-            case 64: {
-                keyByte = getHash("CRC64", key);
-                if (iv != null) {
-                    ivByte = getHash("CRC64", iv);
-                } else {
-                    ivByte = new byte[]{0, 0, 0, 0, 0, 0, 0, 0};
-                }
-                crypt = new DESCrypt(keyByte, ivByte);
-            }
-            break;
-            case 128:
-            case 192:
-            case 256: {
-                switch (bit) {
-                    case 128:
-                        keyByte = getHash("MD5", key);
-                        break;
-                    case 192:
-                        keyByte = getHash("TIGER", key);
-                        break;
-                    case 256:
-                        keyByte = getHash("SHA-256", key);
-                        break;
-                    default:
-                        throw new RuntimeException();
-                }
-                if (iv != null) {
-                    ivByte = getHash("MD5", iv);
-                } else {
-                    ivByte = new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
-                }
-                crypt = new AESCrypt(keyByte, ivByte);
-            }
-            break;
-            default:
-                throw new RuntimeException("The key must be 8 bytes(64 bits), 16 bytes(128 bits), 24 bytes(192 bits) or 32 bytes(256 bits)!");
+        byte[] buffer = ScratchBuffer.bytes(TextCodec.maxUTF8Length(key.length()));
+        int length = TextCodec.encodeUTF8(key, 0, key.length(), buffer, 0);
+        final byte[] keyByte = hashKey(bit, buffer, length);
+        // 暫存陣列會一直被執行緒保留，不能留下密鑰
+        Arrays.fill(buffer, 0, length, (byte) 0);
+        byte[] ivByte = null;
+        if (iv != null) {
+            buffer = ScratchBuffer.bytes(TextCodec.maxUTF8Length(iv.length()));
+            length = TextCodec.encodeUTF8(iv, 0, iv.length(), buffer, 0);
+            ivByte = hashIv(bit, buffer, length);
+            Arrays.fill(buffer, 0, length, (byte) 0);
         }
+        crypt = createCrypt(bit, keyByte, ivByte);
+    }
+
+    /**
+     * <p>
+     * 建構子，使用二進位的密鑰和IV。密鑰和IV的雜湊方式和使用字串的建構子相同，如果二進位資料是字串的UTF-8編碼，建立出來的MagicCrypt物件也會相同。</p>
+     *
+     * @param key 傳入任意長度的密鑰，null視為空的密鑰
+     * @param bit 傳入密鑰長度，數值可以是64、128、192、256(位元)
+     * @param iv 傳入任意長度的IV，null表示使用預設IV
+     */
+    public MagicCrypt(final byte[] key, final int bit, final byte[] iv) {
+        checkBit(bit);
+        final byte[] keyByte = key != null ? hashKey(bit, key, key.length) : hashKey(bit, new byte[0], 0);
+        crypt = createCrypt(bit, keyByte, iv != null ? hashIv(bit, iv, iv.length) : null);
+    }
+
+    /**
+     * <p>
+     * 建構子，使用字元陣列的密鑰和IV，不需要產生String物件，因此呼叫者用完之後可以自行清除陣列。密鑰和IV會以UTF-8編碼，雜湊方式和使用字串的建構子相同。</p>
+     *
+     * @param key 傳入任意長度的密鑰，null視為空的密鑰
+     * @param bit 傳入密鑰長度，數值可以是64、128、192、256(位元)
+     * @param iv 傳入任意長度的IV，null表示使用預設IV
+     */
+    public MagicCrypt(char[] key, final int bit, final char[] iv) {
+        checkBit(bit);
+        if (key == null) {
+            key = new char[0];
+        }
+        byte[] buffer = ScratchBuffer.bytes(TextCodec.maxUTF8Length(key.length));
+        int length = TextCodec.encodeUTF8(key, 0, key.length, buffer, 0);
+        final byte[] keyByte = hashKey(bit, buffer, length);
+        Arrays.fill(buffer, 0, length, (byte) 0);
+        byte[] ivByte = null;
+        if (iv != null) {
+            buffer = ScratchBuffer.bytes(TextCodec.maxUTF8Length(iv.length));
+            length = TextCodec.encodeUTF8(iv, 0, iv.length, buffer, 0);
+            ivByte = hashIv(bit, buffer, length);
+            Arrays.fill(buffer, 0, length, (byte) 0);
+        }
+        crypt = createCrypt(bit, keyByte, ivByte);
     }
 
     // -----類別方法-----
@@ -136,76 +188,174 @@ public class MagicCrypt {
      *
      * @param data 傳入位元組陣列資料
      * @return 傳回16進制的字串
+     * @see Hex#encode(byte[])
      */
     public static String byteToHexString(final byte[] data) {
-        if (data == null) {
-            return null;
-        }
-        final StringBuilder sb = new StringBuilder();
-        for (final int b : data) {
-            final int m = (b << 24) >>> 28;
-            final int l = (b << 28) >>> 28;
-            sb.append(hexDigit(m)).append(hexDigit(l));
-        }
-        return sb.toString();
+        return Hex.encode(data);
     }
 
     /**
-     * 將16進制的單一位數轉成字元。
+     * 檢查密鑰長度是否正確。
      *
-     * @param digit 傳入整數，範圍在0~15之間
-     * @return 傳回代表整數的字元
+     * @param bit 傳入密鑰長度(位元)
      */
-    private static char hexDigit(final int digit) {
-        if (digit >= 0 && digit <= 9) {
-            return (char) ('0' + digit);
-        } else if (digit >= 10 && digit <= 15) {
-            return (char) ('a' + digit - 10);
+    private static void checkBit(final int bit) {
+        switch (bit) {
+            case 64:
+            case 128:
+            case 192:
+            case 256:
+                return;
+            default:
+                throw new RuntimeException("The key must be 8 bytes(64 bits), 16 bytes(128 bits), 24 bytes(192 bits) or 32 bytes(256 bits)!");
         }
-        throw new RuntimeException("The hex digit is out of bounds.");
     }
 
     /**
-     * 取得字串的雜湊值。
+     * 計算密鑰。64位元使用CRC64，128位元使用MD5，192位元使用Tiger，256位元使用SHA256。
      *
-     * @param algorithm 傳入雜驟演算法
-     * @param text 傳入要雜湊的字串
-     * @return 傳回雜湊後資料內容
+     * @param bit 傳入密鑰長度(位元)
+     * @param data 傳入密鑰資料
+     * @param length 傳入密鑰資料的長度
+     * @return 傳回密鑰
      */
-    private static byte[] getHash(final String algorithm, final String text) {
-        try {
-            return getHash(algorithm, text.getBytes("UTF-8"));
-        } catch (final Exception ex) {
-            throw new RuntimeException(ex.getMessage());
+    private static byte[] hashKey(final int bit, final byte[] data, final int length) {
+        switch (bit) {
+            case 64:
+                return CRC64.getHash(data, 0, length);
+            case 128:
+                return digest(MD5, data, length);
+            case 192:
+                return Tiger.getHash(data, 0, length);
+            case 256:
+                return digest(SHA256, data, length);
+            default:
+                throw new RuntimeException();
         }
     }
 
     /**
-     * 取得資料的雜湊值。
+     * 計算IV。DES使用CRC64，AES使用MD5。
+     *
+     * @param bit 傳入密鑰長度(位元)
+     * @param data 傳入IV資料
+     * @param length 傳入IV資料的長度
+     * @return 傳回IV
+     */
+    private static byte[] hashIv(final int bit, final byte[] data, final int length) {
+        return bit == 64 ? CRC64.getHash(data, 0, length) : digest(MD5, data, length);
+    }
+
+    /**
+     * 使用目前執行緒的MessageDigest物件計算雜湊值。
      *
-     * @param algorithm 傳入雜驟演算法
+     * @param digests 傳入存放MessageDigest物件的ThreadLocal
      * @param data 傳入要雜湊的資料
+     * @param length 傳入資料的長度
      * @return 傳回雜湊後資料內容
      */
-    private static byte[] getHash(final String algorithm, final byte[] data) {
-        try {
-            switch (algorithm.toUpperCase()) {
-                case "CRC64":
-                    return CRC64.getHash(data);
-                case "TIGER":
-                    return Tiger.getHash(data);
-                default:
-                    final MessageDigest digest = MessageDigest.getInstance(algorithm);
-                    digest.update(data);
-                    return digest.digest();
-            }
+    private static byte[] digest(final ThreadLocal<MessageDigest> digests, final byte[] data, final int length) {
+        final MessageDigest digest = digests.get();
+        digest.reset();
+        digest.update(data, 0, length);
+        return digest.digest();
+    }
 
-        } catch (final Exception ex) {
-            throw new RuntimeException(ex.getMessage());
+    /**
+     * 建立加/解密物件。
+     *
+     * @param bit 傳入密鑰長度(位元)
+     * @param keyByte 傳入密鑰
+     * @param ivByte 傳入IV，null表示使用全為0的預設IV
+     * @return 傳回加/解密物件
+     */
+    private static CipherCrpyt createCrypt(final int bit, final byte[] keyByte, final byte[] ivByte) {
+        if (bit == 64) {
+            return new DESCrypt(keyByte, ivByte != null ? ivByte : new byte[8]);
         }
+        return new AESCrypt(keyByte, ivByte != null ? ivByte : new byte[16]);
+    }
+
+    /**
+     * 建立每個執行緒各自使用的MessageDigest物件。
+     *
+     * @param algorithm 傳入雜湊演算法
+     * @return 傳回ThreadLocal
+     */
+    private static ThreadLocal<MessageDigest> threadLocalDigest(final String algorithm) {
+        return new ThreadLocal<MessageDigest>() {
+            @Override
+            protected MessageDigest initialValue() {
+                try {
+                    return MessageDigest.getInstance(algorithm);
+                } catch (final GeneralSecurityException ex) {
+                    throw new RuntimeException(ex.getMessage());
+                }
+            }
+        };
     }
 
     // -----物件方法-----
+    /**
+     * 取得存放已初始化之Cipher物件的池子，可以用來查看命中次數等統計資料。
+     *
+     * @return 傳回CipherPool物件
+     */
+    public CipherPool getCipherPool() {
+        return crypt.getCipherPool();
+    }
+
+    /**
+     * 重新設定存放Cipher物件的池子。
+     *
+     * @param maxSize 傳入每種模式(加密、解密)的最大容量
+     * @param idleTimeout 傳入閒置時間(毫秒)，小於等於0表示不移除閒置的物件
+     */
+    public void configureCipherPool(final int maxSize, final long idleTimeout) {
+        crypt.configureCipherPool(maxSize, idleTimeout);
+    }
+
+    /**
+     * <p>
+     * 啟用加/解密結果的快取。之後的encrypt(String)和decrypt(String)會先查詢快取，重複出現的字串不需要再進行加/解密。</p>
+     *
+     * <p>
+     * 如果已經啟用了快取，原本的快取會被捨棄。</p>
+     *
+     * @param maxBytes 傳入快取的記憶體預算(位元組)，加密和解密的結果共用
+     * @return 傳回快取物件，可以用來查看命中次數等統計資料
+     */
+    public CryptCache enableCache(final long maxBytes) {
+        final CryptCache c = new CryptCache(maxBytes);
+        cache = c;
+        return c;
+    }
+
+    /**
+     * 停用加/解密結果的快取。
+     */
+    public void disableCache() {
+        cache = null;
+    }
+
+    /**
+     * 取得加/解密結果的快取。
+     *
+     * @return 傳回快取物件，如果沒有啟用快取，傳回null
+     */
+    public CryptCache getCache() {
+        return cache;
+    }
+
+    /**
+     * 預先建立並初始化Cipher物件，可以在程式啟動時呼叫，避免第一次加/解密時的延遲。
+     *
+     * @param count 傳入每種模式(加密、解密)要準備的數量
+     */
+    public void warmUp(final int count) {
+        crypt.warmUp(count);
+    }
+
     /**
      * 加密文字。
      *
@@ -214,7 +364,16 @@ public class MagicCrypt {
      */
     public String encrypt(final String str) {
         try {
-            return encrypt(str, null);
+            final CryptCache c = cache;
+            if (c == null) {
+                return encrypt(str, null);
+            }
+            String result = c.get(str, true);
+            if (result == null) {
+                result = encrypt(str, null);
+                c.put(str, result, true);
+            }
+            return result;
         } catch (final Exception ex) {
             throw new RuntimeException(ex.getMessage());
         }
@@ -229,13 +388,117 @@ public class MagicCrypt {
      */
     public String encrypt(final String str, final CryptListener listener) {
         try {
-            final byte[] data = encrypt(str.getBytes("UTF-8"), listener);
-            return Base64.getEncoder().encodeToString(data);
+            if (listener != null) {
+                final byte[] data = encrypt(str.getBytes("UTF-8"), listener);
+                return Base64.getEncoder().encodeToString(data);
+            }
+            final int length = str.length();
+            final int maxLength = TextCodec.maxUTF8Length(length);
+            final byte[] buffer = ScratchBuffer.bytes(maxLength + crypt.getOutputSize(maxLength));
+            try {
+                final int dataLength = TextCodec.encodeUTF8(str, 0, length, buffer, 0);
+                final char[] chars = encryptToBase64(buffer, dataLength);
+                return new String(chars, 0, base64Length(dataLength));
+            } finally {
+                // 暫存陣列會一直被執行緒保留，不能留下明文
+                Arrays.fill(buffer, 0, maxLength, (byte) 0);
+            }
         } catch (final Exception ex) {
             throw new RuntimeException(ex.getMessage());
         }
     }
 
+    /**
+     * 加密文字，並將加密後的文字加到StringBuilder的後面。
+     *
+     * @param text 傳入要加密的文字
+     * @param output 傳入輸出的StringBuilder
+     * @return 傳回輸出的StringBuilder
+     */
+    public StringBuilder encryptTo(final CharSequence text, final StringBuilder output) {
+        try {
+            final int length = text.length();
+            final int maxLength = TextCodec.maxUTF8Length(length);
+            final byte[] buffer = ScratchBuffer.bytes(maxLength + crypt.getOutputSize(maxLength));
+            try {
+                final int dataLength = TextCodec.encodeUTF8(text, 0, length, buffer, 0);
+                final char[] chars = encryptToBase64(buffer, dataLength);
+                return output.append(chars, 0, base64Length(dataLength));
+            } finally {
+                Arrays.fill(buffer, 0, maxLength, (byte) 0);
+            }
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 加密文字，並將加密後的文字加到StringBuilder的後面。
+     *
+     * @param text 傳入要加密的文字
+     * @param offset 傳入文字的起始位置
+     * @param length 傳入文字的長度
+     * @param output 傳入輸出的StringBuilder
+     * @return 傳回輸出的StringBuilder
+     */
+    public StringBuilder encryptTo(final char[] text, final int offset, final int length, final StringBuilder output) {
+        try {
+            final int maxLength = TextCodec.maxUTF8Length(length);
+            final byte[] buffer = ScratchBuffer.bytes(maxLength + crypt.getOutputSize(maxLength));
+            try {
+                final int dataLength = TextCodec.encodeUTF8(text, offset, offset + length, buffer, 0);
+                final char[] chars = encryptToBase64(buffer, dataLength);
+                return output.append(chars, 0, base64Length(dataLength));
+            } finally {
+                Arrays.fill(buffer, 0, maxLength, (byte) 0);
+            }
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 在同一個陣列中加密資料，再將加密後的資料以Base64編碼。密文不覆蓋明文，以免Cipher物件需要先複製輸入的資料。
+     *
+     * @param buffer 傳入要加密的資料，加密後的資料會接著放在後面，因此長度必須至少有length + getOutputSize(length)
+     * @param length 傳入資料的長度
+     * @return 傳回目前執行緒的字元暫存陣列，開頭的base64Length(length)個字元為Base64編碼後的結果
+     */
+    private char[] encryptToBase64(final byte[] buffer, final int length) throws GeneralSecurityException {
+        final CipherPool pool = crypt.getCipherPool();
+        final Cipher cipher = pool.borrow(Cipher.ENCRYPT_MODE);
+        final char[] chars = encryptToBase64(cipher, buffer, length);
+        pool.release(cipher, Cipher.ENCRYPT_MODE);
+        return chars;
+    }
+
+    /**
+     * 使用指定的Cipher物件，在同一個陣列中加密資料，再將加密後的資料以Base64編碼。
+     *
+     * @param cipher 傳入已初始化為加密模式的Cipher物件
+     * @param buffer 傳入要加密的資料，加密後的資料會接著放在後面，因此長度必須至少有length + getOutputSize(length)
+     * @param length 傳入資料的長度
+     * @return 傳回目前執行緒的字元暫存陣列，開頭的base64Length(length)個字元為Base64編碼後的結果
+     * @throws java.security.GeneralSecurityException 當加密時發生問題，會拋出這個例外
+     */
+    private char[] encryptToBase64(final Cipher cipher, final byte[] buffer, final int length) throws GeneralSecurityException {
+        final int encryptedLength = cipher.doFinal(buffer, 0, length, buffer, length);
+        final Base64.Encoder encoder = Base64.getEncoder();
+        final char[] chars = ScratchBuffer.chars(encoder.outLength(encryptedLength));
+        encoder.encodeRange(buffer, length, length + encryptedLength, chars, 0);
+        return chars;
+    }
+
+    /**
+     * 取得資料加密並以Base64編碼後的長度。
+     *
+     * @param length 傳入資料的長度
+     * @return 傳回Base64編碼後的字元數量
+     */
+    private int base64Length(final int length) {
+        return Base64.getEncoder().outLength(crypt.getOutputSize(length));
+    }
+
     /**
      * 加密資料。
      *
@@ -265,6 +528,97 @@ public class MagicCrypt {
         }
     }
 
+    /**
+     * 取得加密後的資料大小，可以用來準備剛好足夠的輸出陣列。
+     *
+     * @param inputLength 傳入要加密的資料大小
+     * @return 傳回加密後的資料大小
+     */
+    public int getOutputSize(final int inputLength) {
+        return crypt.getOutputSize(inputLength);
+    }
+
+    /**
+     * 加密資料，並直接寫入輸出陣列中，不會產生額外的物件。輸入和輸出可以是同一個陣列。
+     *
+     * @param input 傳入要加密的資料
+     * @param inputOffset 傳入要加密之資料的起始位置
+     * @param inputLength 傳入要加密之資料的長度
+     * @param output 傳入輸出的陣列，從outputOffset開始必須至少有getOutputSize(inputLength)個位元組的空間
+     * @param outputOffset 傳入輸出陣列的起始位置
+     * @return 傳回寫入輸出陣列的資料長度
+     */
+    public int encrypt(final byte[] input, final int inputOffset, final int inputLength, final byte[] output, final int outputOffset) {
+        return crypt.encrypt(input, inputOffset, inputLength, output, outputOffset);
+    }
+
+    /**
+     * 加密緩衝區中從position到limit之間的資料，並將加密後的資料從dst的position開始寫入。直接配置的緩衝區會直接交給Cipher物件處理，不會複製到陣列中。
+     *
+     * @param src 傳入要加密的資料
+     * @param dst 傳入輸出的緩衝區，必須至少有getOutputSize(src.remaining())個位元組的空間
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    public int encrypt(final ByteBuffer src, final ByteBuffer dst) {
+        return crypt.encrypt(src, dst);
+    }
+
+    /**
+     * 加密緩衝區中從position到limit之間的資料，再將加密後的資料以Base64編碼，從dst的position開始寫入。輸出的內容和encrypt(String)傳回之文字的ASCII編碼相同。
+     *
+     * @param src 傳入要加密的資料
+     * @param dst 傳入輸出的緩衝區
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    public int encryptToBase64(final ByteBuffer src, final ByteBuffer dst) {
+        final int encryptedLength = crypt.getOutputSize(src.remaining());
+        final Base64.Encoder encoder = Base64.getEncoder();
+        final int base64Length = encoder.outLength(encryptedLength);
+        if (dst.remaining() < base64Length) {
+            throw new RuntimeException("The output buffer is too small.");
+        }
+        final boolean direct = !dst.hasArray();
+        final byte[] buffer = ScratchBuffer.bytes(direct ? encryptedLength + base64Length : encryptedLength);
+        crypt.encrypt(src, ByteBuffer.wrap(buffer, 0, encryptedLength));
+        if (direct) {
+            encoder.encodeRange(buffer, 0, encryptedLength, buffer, encryptedLength);
+            dst.put(buffer, encryptedLength, base64Length);
+        } else {
+            final int position = dst.position();
+            encoder.encodeRange(buffer, 0, encryptedLength, dst.array(), dst.arrayOffset() + position);
+            dst.position(position + base64Length);
+        }
+        return base64Length;
+    }
+
+    /**
+     * 加密文字，並將加密後的資料以16進制的字串表示。
+     *
+     * @param str 傳入要加密的文字
+     * @return 傳回加密後的16進制字串
+     */
+    public String encryptToHex(final String str) {
+        try {
+            final int length = str.length();
+            final int maxLength = TextCodec.maxUTF8Length(length);
+            final byte[] buffer = ScratchBuffer.bytes(maxLength + crypt.getOutputSize(maxLength));
+            try {
+                final int dataLength = TextCodec.encodeUTF8(str, 0, length, buffer, 0);
+                final CipherPool pool = crypt.getCipherPool();
+                final Cipher cipher = pool.borrow(Cipher.ENCRYPT_MODE);
+                final int encryptedLength = cipher.doFinal(buffer, 0, dataLength, buffer, dataLength);
+                pool.release(cipher, Cipher.ENCRYPT_MODE);
+                final char[] chars = ScratchBuffer.chars(encryptedLength * 2);
+                return new String(chars, 0, Hex.encode(buffer, dataLength, encryptedLength, chars, 0));
+            } finally {
+                // 暫存陣列會一直被執行緒保留，不能留下明文
+                Arrays.fill(buffer, 0, maxLength, (byte) 0);
+            }
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
     /**
      * 加密資料。
      *
@@ -285,9 +639,31 @@ public class MagicCrypt {
      * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
      */
     public void encrypt(final File inputFile, final File outputFile, final Crypt.CryptListener listener) throws IOException {
-        try (final BufferedInputStream bis = new BufferedInputStream(new FileInputStream(inputFile)); final BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(outputFile))) {
-            encrypt(bis, bos, listener);
-            bos.flush();
+        encrypt(inputFile.toPath(), outputFile.toPath(), listener);
+    }
+
+    /**
+     * 加密資料。
+     *
+     * @param inputFile 傳入要加密的檔案
+     * @param outputFile 傳入已加密完成的檔案
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void encrypt(final Path inputFile, final Path outputFile) throws IOException {
+        encrypt(inputFile, outputFile, null);
+    }
+
+    /**
+     * 加密資料。使用檔案通道和大型緩衝區讀寫，輸出檔案會預先設定成加密後的大小。
+     *
+     * @param inputFile 傳入要加密的檔案
+     * @param outputFile 傳入已加密完成的檔案
+     * @param listener 傳入監聽者物件
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void encrypt(final Path inputFile, final Path outputFile, final Crypt.CryptListener listener) throws IOException {
+        try (final FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ); final FileChannel output = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            crypt.encrypt(input, output, listener);
         }
     }
 
@@ -314,6 +690,20 @@ public class MagicCrypt {
         crypt.encrypt(inputData, outputData, listener);
     }
 
+    /**
+     * 建立加密文字的Writer。寫入的文字會以UTF-8編碼後加密，再以Base64編碼寫到輸出的Writer，結果和encrypt(String)相同。只會使用固定大小的緩衝區，最後一個區塊會在關閉時寫出，輸出的Writer也會一起被關閉。
+     *
+     * @param output 傳入輸出的Writer
+     * @return 傳回加密文字的Writer
+     */
+    public Writer encryptWriter(final Writer output) {
+        try {
+            return CryptStreams.encryptWriter(crypt.getCipherPool(), output);
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
     /**
      * 解密文字。
      *
@@ -322,7 +712,16 @@ public class MagicCrypt {
      */
     public String decrypt(final String str) {
         try {
-            return decrypt(str, null);
+            final CryptCache c = cache;
+            if (c == null) {
+                return decrypt(str, null);
+            }
+            String result = c.get(str, false);
+            if (result == null) {
+                result = decrypt(str, null);
+                c.put(str, result, false);
+            }
+            return result;
         } catch (final Exception ex) {
             throw new RuntimeException(ex.getMessage());
         }
@@ -337,6 +736,19 @@ public class MagicCrypt {
      */
     public String decrypt(final String str, final CryptListener listener) {
         try {
+            if (listener == null) {
+                final int length = str.length();
+                final byte[] buffer = ScratchBuffer.bytes(length * 2);
+                try {
+                    final int dataLength = decryptFromBase64(buffer, TextCodec.encodeLatin1(str, 0, length, buffer, 0));
+                    if (dataLength >= 0) {
+                        return new String(buffer, length, dataLength, TextCodec.UTF_8);
+                    }
+                } finally {
+                    // 暫存陣列會一直被執行緒保留，不能留下明文
+                    Arrays.fill(buffer, length, length * 2, (byte) 0);
+                }
+            }
             final byte[] data = decrypt(Base64.getDecoder().decode(str), listener);
             return new String(data, "UTF-8");
         } catch (final Exception ex) {
@@ -344,6 +756,98 @@ public class MagicCrypt {
         }
     }
 
+    /**
+     * 解密文字，並將解密後的文字加到StringBuilder的後面。
+     *
+     * @param text 傳入要解密的文字
+     * @param output 傳入輸出的StringBuilder
+     * @return 傳回輸出的StringBuilder
+     */
+    public StringBuilder decryptTo(final CharSequence text, final StringBuilder output) {
+        try {
+            final int length = text.length();
+            final byte[] buffer = ScratchBuffer.bytes(length * 2);
+            try {
+                final int dataLength = decryptFromBase64(buffer, TextCodec.encodeLatin1(text, 0, length, buffer, 0));
+                if (dataLength >= 0) {
+                    TextCodec.decodeUTF8(buffer, length, dataLength, output);
+                    return output;
+                }
+            } finally {
+                Arrays.fill(buffer, length, length * 2, (byte) 0);
+            }
+            return output.append(decrypt(text.toString(), null));
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 解密文字，並將解密後的文字加到StringBuilder的後面。
+     *
+     * @param text 傳入要解密的文字
+     * @param offset 傳入文字的起始位置
+     * @param length 傳入文字的長度
+     * @param output 傳入輸出的StringBuilder
+     * @return 傳回輸出的StringBuilder
+     */
+    public StringBuilder decryptTo(final char[] text, final int offset, final int length, final StringBuilder output) {
+        try {
+            final byte[] buffer = ScratchBuffer.bytes(length * 2);
+            try {
+                final int dataLength = decryptFromBase64(buffer, TextCodec.encodeLatin1(text, offset, offset + length, buffer, 0));
+                if (dataLength >= 0) {
+                    TextCodec.decodeUTF8(buffer, length, dataLength, output);
+                    return output;
+                }
+            } finally {
+                Arrays.fill(buffer, length, length * 2, (byte) 0);
+            }
+            return output.append(decrypt(new String(text, offset, length), null));
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 在同一個陣列中將Base64編碼的資料解碼，再解密。解密後的資料會從length的位置開始存放。
+     *
+     * @param buffer 傳入Base64編碼的資料，長度必須至少有length * 2
+     * @param length 傳入資料的長度
+     * @return 傳回解密後的資料長度，如果密文的最後一個區塊不正確，傳回-1，讓呼叫者改用資料流的方式處理
+     */
+    private int decryptFromBase64(final byte[] buffer, final int length) throws GeneralSecurityException {
+        final CipherPool pool = crypt.getCipherPool();
+        final Cipher cipher = pool.borrow(Cipher.DECRYPT_MODE);
+        final int dataLength = decryptFromBase64(cipher, buffer, length);
+        if (dataLength >= 0) {
+            pool.release(cipher, Cipher.DECRYPT_MODE);
+        } else {
+            pool.recycle(cipher, Cipher.DECRYPT_MODE);
+        }
+        return dataLength;
+    }
+
+    /**
+     * 使用指定的Cipher物件，在同一個陣列中將Base64編碼的資料解碼，再解密。解密後的資料會從length的位置開始存放。
+     *
+     * @param cipher 傳入已初始化為解密模式的Cipher物件
+     * @param buffer 傳入Base64編碼的資料，長度必須至少有length * 2
+     * @param length 傳入資料的長度
+     * @return 傳回解密後的資料長度，如果密文的最後一個區塊不正確，傳回-1，此時Cipher物件要重新初始化才能再使用
+     * @throws java.security.GeneralSecurityException 當解密時發生問題，會拋出這個例外
+     */
+    private int decryptFromBase64(final Cipher cipher, final byte[] buffer, final int length) throws GeneralSecurityException {
+        final Base64.Decoder decoder = Base64.getDecoder();
+        decoder.outLength(buffer, 0, length);
+        final int encryptedLength = decoder.decodeRange(buffer, 0, length, buffer, 0);
+        try {
+            return cipher.doFinal(buffer, 0, encryptedLength, buffer, length);
+        } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+            return -1;
+        }
+    }
+
     /**
      * 解密資料。
      *
@@ -373,6 +877,99 @@ public class MagicCrypt {
         }
     }
 
+    /**
+     * 解密資料，並直接寫入輸出陣列中，不會產生額外的物件。輸入和輸出可以是同一個陣列。最後一個區塊有錯誤時，結果和decrypt(byte[])相同。
+     *
+     * @param input 傳入要解密的資料
+     * @param inputOffset 傳入要解密之資料的起始位置
+     * @param inputLength 傳入要解密之資料的長度
+     * @param output 傳入輸出的陣列，從outputOffset開始必須至少有inputLength個位元組的空間
+     * @param outputOffset 傳入輸出陣列的起始位置
+     * @return 傳回寫入輸出陣列的資料長度
+     */
+    public int decrypt(final byte[] input, final int inputOffset, final int inputLength, final byte[] output, final int outputOffset) {
+        return crypt.decrypt(input, inputOffset, inputLength, output, outputOffset);
+    }
+
+    /**
+     * 解密緩衝區中從position到limit之間的資料，並將解密後的資料從dst的position開始寫入。直接配置的緩衝區會直接交給Cipher物件處理，不會複製到陣列中。
+     *
+     * @param src 傳入要解密的資料
+     * @param dst 傳入輸出的緩衝區，必須至少有src.remaining()個位元組的空間
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    public int decrypt(final ByteBuffer src, final ByteBuffer dst) {
+        return crypt.decrypt(src, dst);
+    }
+
+    /**
+     * 將緩衝區中從position到limit之間的Base64資料解碼後再解密，並將解密後的資料從dst的position開始寫入。可以解密encryptToBase64(ByteBuffer, ByteBuffer)的輸出。
+     *
+     * @param src 傳入要解密的Base64資料
+     * @param dst 傳入輸出的緩衝區，必須至少有src.remaining()個位元組的空間
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    public int decryptFromBase64(final ByteBuffer src, final ByteBuffer dst) {
+        final int position = src.position();
+        final int length = src.remaining();
+        final byte[] buffer = ScratchBuffer.bytes(length);
+        try {
+            final Base64.Decoder decoder = Base64.getDecoder();
+            final int encryptedLength;
+            if (src.hasArray()) {
+                final int offset = src.arrayOffset() + position;
+                decoder.outLength(src.array(), offset, offset + length);
+                encryptedLength = decoder.decodeRange(src.array(), offset, offset + length, buffer, 0);
+            } else {
+                src.get(buffer, 0, length);
+                decoder.outLength(buffer, 0, length);
+                encryptedLength = decoder.decodeRange(buffer, 0, length, buffer, 0);
+            }
+            final int dataLength = crypt.decrypt(ByteBuffer.wrap(buffer, 0, encryptedLength), dst);
+            src.position(position + length);
+            return dataLength;
+        } catch (final Exception ex) {
+            src.position(position);
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 解密encryptToHex產生的16進制字串。
+     *
+     * @param str 傳入要解密的16進制字串
+     * @return 傳回解密後的文字
+     */
+    public String decryptFromHex(final String str) {
+        try {
+            final int length = str.length();
+            final int encryptedLength = length / 2;
+            // 解密後的資料不會比密文長，接著放在密文的後面
+            final int bufferLength = encryptedLength + crypt.getOutputSize(encryptedLength);
+            final byte[] buffer = ScratchBuffer.bytes(bufferLength);
+            try {
+                Hex.decode(str, 0, length, buffer, 0);
+                final CipherPool pool = crypt.getCipherPool();
+                final Cipher cipher = pool.borrow(Cipher.DECRYPT_MODE);
+                final int dataLength;
+                try {
+                    dataLength = cipher.doFinal(buffer, 0, encryptedLength, buffer, encryptedLength);
+                } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+                    pool.recycle(cipher, Cipher.DECRYPT_MODE);
+                    // 讓最後一個區塊有錯誤的資料，和decrypt(String)一樣被處理
+                    return new String(decrypt(Arrays.copyOf(buffer, encryptedLength)), TextCodec.UTF_8);
+                }
+                pool.release(cipher, Cipher.DECRYPT_MODE);
+                return new String(buffer, encryptedLength, dataLength, TextCodec.UTF_8);
+            } finally {
+                // 暫存陣列會一直被執行緒保留，不能留下明文
+                Arrays.fill(buffer, encryptedLength, bufferLength, (byte) 0);
+            }
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
     /**
      * 解密資料。
      *
@@ -393,9 +990,31 @@ public class MagicCrypt {
      * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
      */
     public void decrypt(final File inputFile, final File outputFile, final Crypt.CryptListener listener) throws IOException {
-        try (final BufferedInputStream bis = new BufferedInputStream(new FileInputStream(inputFile)); final BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(outputFile))) {
-            decrypt(bis, bos, listener);
-            bos.flush();
+        decrypt(inputFile.toPath(), outputFile.toPath(), listener);
+    }
+
+    /**
+     * 解密資料。
+     *
+     * @param inputFile 傳入要解密的檔案
+     * @param outputFile 傳入已解密完成的檔案
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void decrypt(final Path inputFile, final Path outputFile) throws IOException {
+        decrypt(inputFile, outputFile, null);
+    }
+
+    /**
+     * 解密資料。使用檔案通道和大型緩衝區讀寫。
+     *
+     * @param inputFile 傳入要解密的檔案
+     * @param outputFile 傳入已解密完成的檔案
+     * @param listener 傳入監聽者物件
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void decrypt(final Path inputFile, final Path outputFile, final Crypt.CryptListener listener) throws IOException {
+        try (final FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ); final FileChannel output = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            crypt.decrypt(input, output, listener);
         }
     }
 
@@ -421,4 +1040,292 @@ public class MagicCrypt {
     public void decrypt(final InputStream inputData, final OutputStream outputData, final Crypt.CryptListener listener) throws IOException {
         crypt.decrypt(inputData, outputData, listener);
     }
+
+    /**
+     * 建立解密文字的Reader。從輸入的Reader讀取encrypt(String)產生的Base64密文，解碼並解密後，再以UTF-8解碼成文字。只會使用固定大小的緩衝區，關閉時輸入的Reader也會一起被關閉。
+     *
+     * @param input 傳入輸入的Reader
+     * @return 傳回解密文字的Reader
+     */
+    public Reader decryptReader(final Reader input) {
+        try {
+            return CryptStreams.decryptReader(crypt.getCipherPool(), input);
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 以指定的模式批次加/解密文字，整批文字共用同一個Cipher物件和暫存陣列。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param texts 傳入輸入的文字
+     * @param from 傳入要處理的第一筆文字的索引
+     * @param to 傳入要處理的最後一筆文字的下一個索引
+     * @param results 傳入存放結果的陣列，結果的索引和輸入的文字相同
+     */
+    private void cryptAll(final int mode, final String[] texts, final int from, final int to, final String[] results) {
+        try {
+            final CipherPool pool = crypt.getCipherPool();
+            Cipher cipher = pool.borrow(mode);
+            for (int i = from; i < to; ++i) {
+                final String text = texts[i];
+                final int length = text.length();
+                if (mode == Cipher.ENCRYPT_MODE) {
+                    final int maxLength = TextCodec.maxUTF8Length(length);
+                    final byte[] buffer = ScratchBuffer.bytes(maxLength + crypt.getOutputSize(maxLength));
+                    try {
+                        final int dataLength = TextCodec.encodeUTF8(text, 0, length, buffer, 0);
+                        results[i] = new String(encryptToBase64(cipher, buffer, dataLength), 0, base64Length(dataLength));
+                    } finally {
+                        // 暫存陣列會一直被執行緒保留，不能留下明文
+                        Arrays.fill(buffer, 0, maxLength, (byte) 0);
+                    }
+                } else {
+                    final byte[] buffer = ScratchBuffer.bytes(length * 2);
+                    final int dataLength;
+                    try {
+                        dataLength = decryptFromBase64(cipher, buffer, TextCodec.encodeLatin1(text, 0, length, buffer, 0));
+                        if (dataLength >= 0) {
+                            results[i] = new String(buffer, length, dataLength, TextCodec.UTF_8);
+                        }
+                    } finally {
+                        Arrays.fill(buffer, length, length * 2, (byte) 0);
+                    }
+                    if (dataLength < 0) {
+                        pool.recycle(cipher, mode);
+                        results[i] = decrypt(text, null);
+                        cipher = pool.borrow(mode);
+                    }
+                }
+            }
+            pool.release(cipher, mode);
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 以指定的模式批次加/解密文字，並將文字分成數個部份交給執行緒池平行處理。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param texts 傳入輸入的文字
+     * @param executor 傳入執行緒池，如果是null就在目前的執行緒處理
+     * @return 傳回輸出的文字，順序和輸入的文字相同
+     */
+    private List<String> cryptAll(final int mode, final List<String> texts, final ExecutorService executor) {
+        final String[] input = texts.toArray(new String[texts.size()]);
+        final int length = input.length;
+        final String[] results = new String[length];
+        Batches.run(length, executor, new Batches.Range() {
+            @Override
+            public void run(final int from, final int to) {
+                cryptAll(mode, input, from, to, results);
+            }
+        });
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    /**
+     * 批次加密文字。整批文字共用同一個已初始化的Cipher物件和暫存陣列，適合用來加密大量的短字串。
+     *
+     * @param texts 傳入要加密的文字
+     * @return 傳回加密後的文字，順序和輸入的文字相同
+     */
+    public List<String> encryptAll(final List<String> texts) {
+        return cryptAll(Cipher.ENCRYPT_MODE, texts, null);
+    }
+
+    /**
+     * 批次加密文字，並將文字分成數個部份交給執行緒池平行處理。
+     *
+     * @param texts 傳入要加密的文字
+     * @param executor 傳入執行緒池
+     * @return 傳回加密後的文字，順序和輸入的文字相同
+     */
+    public List<String> encryptAll(final List<String> texts, final ExecutorService executor) {
+        return cryptAll(Cipher.ENCRYPT_MODE, texts, executor);
+    }
+
+    /**
+     * 批次加密資料。整批資料共用同一個已初始化的Cipher物件。
+     *
+     * @param data 傳入要加密的資料
+     * @return 傳回加密後的資料，順序和輸入的資料相同
+     */
+    public byte[][] encryptAll(final byte[][] data) {
+        return crypt.encryptAll(data);
+    }
+
+    /**
+     * 批次加密資料，並將資料分成數個部份交給執行緒池平行處理。
+     *
+     * @param data 傳入要加密的資料
+     * @param executor 傳入執行緒池
+     * @return 傳回加密後的資料，順序和輸入的資料相同
+     */
+    public byte[][] encryptAll(final byte[][] data, final ExecutorService executor) {
+        return crypt.encryptAll(data, executor);
+    }
+
+    /**
+     * 批次解密文字。整批文字共用同一個已初始化的Cipher物件和暫存陣列，適合用來解密大量的短字串。
+     *
+     * @param texts 傳入要解密的文字
+     * @return 傳回解密後的文字，順序和輸入的文字相同
+     */
+    public List<String> decryptAll(final List<String> texts) {
+        return cryptAll(Cipher.DECRYPT_MODE, texts, null);
+    }
+
+    /**
+     * 批次解密文字，並將文字分成數個部份交給執行緒池平行處理。
+     *
+     * @param texts 傳入要解密的文字
+     * @param executor 傳入執行緒池
+     * @return 傳回解密後的文字，順序和輸入的文字相同
+     */
+    public List<String> decryptAll(final List<String> texts, final ExecutorService executor) {
+        return cryptAll(Cipher.DECRYPT_MODE, texts, executor);
+    }
+
+    /**
+     * 批次解密資料。整批資料共用同一個已初始化的Cipher物件。
+     *
+     * @param data 傳入要解密的資料
+     * @return 傳回解密後的資料，順序和輸入的資料相同
+     */
+    public byte[][] decryptAll(final byte[][] data) {
+        return crypt.decryptAll(data);
+    }
+
+    /**
+     * 批次解密資料，並將資料分成數個部份交給執行緒池平行處理。
+     *
+     * @param data 傳入要解密的資料
+     * @param executor 傳入執行緒池
+     * @return 傳回解密後的資料，順序和輸入的資料相同
+     */
+    public byte[][] decryptAll(final byte[][] data, final ExecutorService executor) {
+        return crypt.decryptAll(data, executor);
+    }
+
+    /**
+     * 批次加密以欄位方式存放的多筆資料，輸出的陣列只會配置一次。
+     *
+     * @param packed 傳入要加密的資料
+     * @return 傳回加密後的資料，順序和輸入的資料相同
+     */
+    public PackedData encryptPacked(final PackedData packed) {
+        return crypt.encryptPacked(packed);
+    }
+
+    /**
+     * 批次解密以欄位方式存放的多筆資料，輸出的陣列只會配置一次。
+     *
+     * @param packed 傳入要解密的資料
+     * @return 傳回解密後的資料，順序和輸入的資料相同
+     */
+    public PackedData decryptPacked(final PackedData packed) {
+        return crypt.decryptPacked(packed);
+    }
+
+    /**
+     * 取得分段加/解密物件，使用預設的區段大小和ForkJoinPool。
+     *
+     * @return 傳回SegmentedCrypt物件
+     */
+    public SegmentedCrypt getSegmentedCrypt() {
+        SegmentedCrypt segmentedCrypt = this.segmentedCrypt;
+        if (segmentedCrypt == null) {
+            segmentedCrypt = new SegmentedCrypt(crypt);
+            this.segmentedCrypt = segmentedCrypt;
+        }
+        return segmentedCrypt;
+    }
+
+    /**
+     * 以分段格式加密資料。每個區段會平行加密，加密後的資料必須使用decryptSegmented解密。
+     *
+     * @param data 傳入要加密的資料
+     * @return 傳回加密後的資料
+     */
+    public byte[] encryptSegmented(final byte[] data) {
+        return getSegmentedCrypt().encrypt(data);
+    }
+
+    /**
+     * 解密以分段格式加密的資料。每個區段會平行解密。
+     *
+     * @param data 傳入要解密的資料
+     * @return 傳回解密後的資料
+     */
+    public byte[] decryptSegmented(final byte[] data) {
+        return getSegmentedCrypt().decrypt(data);
+    }
+
+    /**
+     * 以分段格式加密檔案。每個區段會平行加密，並直接寫到輸出檔案中最後的位置。
+     *
+     * @param inputFile 傳入要加密的檔案
+     * @param outputFile 傳入已加密完成的檔案
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void encryptSegmented(final Path inputFile, final Path outputFile) throws IOException {
+        try (final FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ); final FileChannel output = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            getSegmentedCrypt().encrypt(input, output);
+        }
+    }
+
+    /**
+     * 解密以分段格式加密的檔案。每個區段會平行解密，並直接寫到輸出檔案中最後的位置。
+     *
+     * @param inputFile 傳入要解密的檔案
+     * @param outputFile 傳入已解密完成的檔案
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void decryptSegmented(final Path inputFile, final Path outputFile) throws IOException {
+        try (final FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ); final FileChannel output = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            getSegmentedCrypt().decrypt(input, output);
+        }
+    }
+
+    /**
+     * 以分段格式加密資料流。每次讀取數個區段平行加密，再依序寫入。完成後會關閉兩個資料流。
+     *
+     * @param inputData 傳入要加密的資料流
+     * @param outputData 傳入已加密的資料流
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void encryptSegmented(final InputStream inputData, final OutputStream outputData) throws IOException {
+        getSegmentedCrypt().encrypt(inputData, outputData);
+    }
+
+    /**
+     * 解密以分段格式加密的資料流。每次讀取數個區段平行解密，再依序寫入。完成後會關閉兩個資料流。
+     *
+     * @param inputData 傳入要解密的資料流
+     * @param outputData 傳入已解密的資料流
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void decryptSegmented(final InputStream inputData, final OutputStream outputData) throws IOException {
+        getSegmentedCrypt().decrypt(inputData, outputData);
+    }
+
+    /**
+     * 開啟以分段格式加密的檔案，傳回可以隨機讀取的唯讀通道。讀取時只會解密涵蓋所要求之範圍的區塊，不需要從頭開始解密。
+     *
+     * @param file 傳入以分段格式加密的檔案
+     * @return 傳回以明文為單位的唯讀通道，使用完後必須關閉
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public SegmentedChannel openSegmented(final Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return getSegmentedCrypt().newReadChannel(channel);
+        } catch (final IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.security.Provider;
+import java.security.Security;
+
+/**
+ * <p>
+ * MagicCrypt的JCA提供者，註冊了MessageDigest的「TIGER」演算法。</p>
+ *
+ * <p>
+ * 呼叫install方法之後，就可以使用MessageDigest.getInstance("TIGER")來取得TigerDigest物件。</p>
+ *
+ * @author Magic Len
+ * @see TigerDigest
+ */
+public final class MagicCryptProvider extends Provider {
+
+    // -----類別常數-----
+    private static final long serialVersionUID = 1L;
+    /**
+     * 提供者名稱。
+     */
+    public static final String NAME = "MagicCrypt";
+
+    // -----建構子-----
+    /**
+     * 建構子。
+     */
+    public MagicCryptProvider() {
+        super(NAME, Version.MAJOR + Version.MINOR / 10.0, "MagicCrypt Provider (Tiger MessageDigest)");
+        put("MessageDigest." + TigerDigest.ALGORITHM, TigerDigest.class.getName());
+        put("Alg.Alias.MessageDigest.TIGER192", TigerDigest.ALGORITHM);
+    }
+
+    // -----類別方法-----
+    /**
+     * 將MagicCryptProvider加入到Java的安全提供者清單的最後面。如果已經加入過了，就不會再加入一次。
+     *
+     * @return 傳回這次是否有加入
+     */
+    public static synchronized boolean install() {
+        if (Security.getProvider(NAME) != null) {
+            return false;
+        }
+        return Security.addProvider(new MagicCryptProvider()) != -1;
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.magiclen.magiccrypt.lib.StripedCounter;
+
+/**
+ * <p>
+ * 依照密鑰、密鑰長度和IV保存MagicCrypt物件的登錄表，讓多租戶的程式不必為每個請求重新計算密鑰和建立Cipher物件。同一個MagicCryptRegistry物件可以同時被多個執行緒使用。</p>
+ *
+ * <p>
+ * 登錄表不會保存密鑰和IV本身，而是以它們的SHA-256雜湊值當作索引。多個執行緒同時要求同一組還沒有載入的密鑰時，只會有一個執行緒建立MagicCrypt物件，其它的執行緒會等待它完成。數量超過最大容量時，最久沒有被使用的物件會被移除；閒置超過指定時間的物件也會被移除。</p>
+ *
+ * @author Magic Len
+ * @see MagicCrypt
+ */
+public class MagicCryptRegistry {
+
+    // -----類別類別-----
+    /**
+     * 登錄表的索引，由密鑰和IV的SHA-256雜湊值以及密鑰長度組成。
+     */
+    private static final class Key {
+
+        private final long h0, h1, h2, h3;
+        private final int bit;
+
+        Key(final byte[] digest, final int bit) {
+            h0 = toLong(digest, 0);
+            h1 = toLong(digest, 8);
+            h2 = toLong(digest, 16);
+            h3 = toLong(digest, 24);
+            this.bit = bit;
+        }
+
+        private static long toLong(final byte[] data, final int offset) {
+            long value = 0;
+            for (int i = 0; i < 8; ++i) {
+                value = (value << 8) | (data[offset + i] & 0xFF);
+            }
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (h0 ^ (h0 >>> 32)) * 31 + bit;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return h0 == other.h0 && h1 == other.h1 && h2 == other.h2 && h3 == other.h3 && bit == other.bit;
+        }
+    }
+
+    /**
+     * 登錄表中的一個項目。
+     */
+    private static final class Entry {
+
+        /**
+         * 建立MagicCrypt物件的工作，只會執行一次。
+         */
+        final FutureTask<MagicCrypt> task;
+        /**
+         * 最後被使用的時間(奈秒)。
+         */
+        volatile long lastAccess;
+
+        Entry(final FutureTask<MagicCrypt> task, final long now) {
+            this.task = task;
+            this.lastAccess = now;
+        }
+    }
+
+    /**
+     * 預設的登錄表，第一次使用時才會建立。
+     */
+    private static final class DefaultRegistry {
+
+        static final MagicCryptRegistry REGISTRY = new MagicCryptRegistry();
+    }
+
+    // -----類別常數-----
+    /**
+     * 預設的最大容量。
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    /**
+     * 預設的閒置時間(毫秒)。
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 600000;
+    /**
+     * 索引的雜湊函數中，沒有IV時使用的標記。
+     */
+    private static final byte NO_IV = 0;
+    /**
+     * 索引的雜湊函數中，有IV時使用的標記。
+     */
+    private static final byte HAS_IV = 1;
+    /**
+     * 空的密鑰。
+     */
+    private static final byte[] EMPTY = new byte[0];
+
+    // -----物件常數-----
+    /**
+     * 最大容量。
+     */
+    private final int maxSize;
+    /**
+     * 閒置時間(奈秒)。
+     */
+    private final long idleTimeout;
+    /**
+     * 存放MagicCrypt物件的雜湊表，內部分段上鎖。
+     */
+    private final ConcurrentHashMap<Key, Entry> entries;
+    /**
+     * 移除超出容量之物件時使用的鎖，同一時間只會有一個執行緒進行移除。
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    /**
+     * 命中次數。
+     */
+    private final StripedCounter hits = new StripedCounter();
+    /**
+     * 未命中次數，也就是建立MagicCrypt物件的次數。
+     */
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * 因閒置或是超出容量而移除物件的次數。
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    // -----物件變數-----
+    /**
+     * 下一次檢查閒置物件的時間(奈秒)。
+     */
+    private volatile long nextSweep;
+
+    // -----建構子-----
+    /**
+     * 建構子，使用預設的最大容量和閒置時間。
+     */
+    public MagicCryptRegistry() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * 建構子。
+     *
+     * @param maxSize 傳入最大容量
+     * @param idleTimeout 傳入閒置時間(毫秒)，小於等於0表示不移除閒置的物件
+     */
+    public MagicCryptRegistry(final int maxSize, final long idleTimeout) {
+        if (maxSize <= 0) {
+            throw new RuntimeException("The max size of a registry must be positive!");
+        }
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout > 0 ? idleTimeout * 1000000L : 0;
+        entries = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16), 0.75f, Runtime.getRuntime().availableProcessors() * 4);
+        nextSweep = System.nanoTime() + sweepInterval();
+    }
+
+    // -----類別方法-----
+    /**
+     * 取得預設的登錄表，使用預設的最大容量和閒置時間。
+     *
+     * @return 傳回預設的登錄表
+     */
+    public static MagicCryptRegistry getDefault() {
+        return DefaultRegistry.REGISTRY;
+    }
+
+    /**
+     * 將一段資料連同長度加入雜湊函數中，讓不同的密鑰和IV組合不會得到相同的輸入。
+     *
+     * @param digest 傳入雜湊函數
+     * @param data 傳入資料
+     * @param length 傳入資料的長度
+     */
+    private static void update(final MessageDigest digest, final byte[] data, final int length) {
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+        digest.update(data, 0, length);
+    }
+
+    /**
+     * 計算字串密鑰的索引。字串會以UTF-8編碼，因此和相同內容的二進位密鑰得到的索引相同。
+     *
+     * @param key 傳入密鑰，null視為空的密鑰
+     * @param bit 傳入密鑰長度
+     * @param iv 傳入IV，可以是null
+     * @return 傳回索引
+     */
+    private static Key key(final String key, final int bit, final String iv) {
+        final MessageDigest digest = MagicCrypt.SHA256.get();
+        digest.reset();
+        final String k = key != null ? key : "";
+        byte[] buffer = ScratchBuffer.bytes(TextCodec.maxUTF8Length(k.length()));
+        int length = TextCodec.encodeUTF8(k, 0, k.length(), buffer, 0);
+        update(digest, buffer, length);
+        // 暫存陣列會一直被執行緒保留，不能留下密鑰
+        Arrays.fill(buffer, 0, length, (byte) 0);
+        if (iv != null) {
+            buffer = ScratchBuffer.bytes(TextCodec.maxUTF8Length(iv.length()));
+            digest.update(HAS_IV);
+            length = TextCodec.encodeUTF8(iv, 0, iv.length(), buffer, 0);
+            update(digest, buffer, length);
+            Arrays.fill(buffer, 0, length, (byte) 0);
+        } else {
+            digest.update(NO_IV);
+        }
+        return new Key(digest.digest(), bit);
+    }
+
+    /**
+     * 計算二進位密鑰的索引。
+     *
+     * @param key 傳入密鑰，null視為空的密鑰
+     * @param bit 傳入密鑰長度
+     * @param iv 傳入IV，可以是null
+     * @return 傳回索引
+     */
+    private static Key key(final byte[] key, final int bit, final byte[] iv) {
+        final MessageDigest digest = MagicCrypt.SHA256.get();
+        digest.reset();
+        if (key != null) {
+            update(digest, key, key.length);
+        } else {
+            update(digest, EMPTY, 0);
+        }
+        if (iv != null) {
+            digest.update(HAS_IV);
+            update(digest, iv, iv.length);
+        } else {
+            digest.update(NO_IV);
+        }
+        return new Key(digest.digest(), bit);
+    }
+
+    // -----物件方法-----
+    /**
+     * 取得MagicCrypt物件。如果登錄表中沒有，會建立新的物件並加入登錄表。
+     *
+     * @param key 傳入任意長度的密鑰字串
+     * @param bit 傳入密鑰長度，數值可以是64、128、192、256(位元)
+     * @param iv 傳入任意長度的IV字串，null表示使用預設IV
+     * @return 傳回MagicCrypt物件，和new MagicCrypt(key, bit, iv)相同
+     */
+    public MagicCrypt get(final String key, final int bit, final String iv) {
+        return get(key(key, bit, iv), new Callable<MagicCrypt>() {
+            @Override
+            public MagicCrypt call() {
+                return new MagicCrypt(key, bit, iv);
+            }
+        });
+    }
+
+    /**
+     * 取得MagicCrypt物件。如果登錄表中沒有，會建立新的物件並加入登錄表。陣列在這個方法傳回之前不可以被修改。
+     *
+     * @param key 傳入任意長度的密鑰
+     * @param bit 傳入密鑰長度，數值可以是64、128、192、256(位元)
+     * @param iv 傳入任意長度的IV，null表示使用預設IV
+     * @return 傳回MagicCrypt物件，和new MagicCrypt(key, bit, iv)相同
+     */
+    public MagicCrypt get(final byte[] key, final int bit, final byte[] iv) {
+        return get(key(key, bit, iv), new Callable<MagicCrypt>() {
+            @Override
+            public MagicCrypt call() {
+                return new MagicCrypt(key, bit, iv);
+            }
+        });
+    }
+
+    /**
+     * 取得MagicCrypt物件。如果登錄表中沒有，只有一個執行緒會執行建立物件的工作，其它執行緒等待它完成。
+     *
+     * @param key 傳入索引
+     * @param loader 傳入建立MagicCrypt物件的工作
+     * @return 傳回MagicCrypt物件
+     */
+    private MagicCrypt get(final Key key, final Callable<MagicCrypt> loader) {
+        final long now = System.nanoTime();
+        if (idleTimeout > 0 && now - nextSweep >= 0) {
+            evictExpired(now);
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && idleTimeout > 0 && now - entry.lastAccess >= idleTimeout) {
+            if (entries.remove(key, entry)) {
+                evictions.incrementAndGet();
+            }
+            entry = null;
+        }
+        if (entry == null) {
+            final Entry created = new Entry(new FutureTask<>(loader), now);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                misses.incrementAndGet();
+                created.task.run();
+                if (entries.size() > maxSize) {
+                    evictOverflow();
+                }
+                return value(key, created);
+            }
+        }
+        hits.increment();
+        entry.lastAccess = now;
+        return value(key, entry);
+    }
+
+    /**
+     * 等待項目中的MagicCrypt物件建立完成。如果建立失敗，項目會被移除，下一次要求時會重新建立。
+     *
+     * @param key 傳入索引
+     * @param entry 傳入項目
+     * @return 傳回MagicCrypt物件
+     */
+    private MagicCrypt value(final Key key, final Entry entry) {
+        try {
+            return entry.task.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex.getMessage());
+        } catch (final ExecutionException ex) {
+            entries.remove(key, entry);
+            throw new RuntimeException(ex.getCause().getMessage());
+        }
+    }
+
+    /**
+     * 移除登錄表中的MagicCrypt物件。
+     *
+     * @param key 傳入任意長度的密鑰字串
+     * @param bit 傳入密鑰長度
+     * @param iv 傳入任意長度的IV字串，可以是null
+     * @return 傳回是否有移除物件
+     */
+    public boolean invalidate(final String key, final int bit, final String iv) {
+        return entries.remove(key(key, bit, iv)) != null;
+    }
+
+    /**
+     * 移除登錄表中的MagicCrypt物件。
+     *
+     * @param key 傳入任意長度的密鑰
+     * @param bit 傳入密鑰長度
+     * @param iv 傳入任意長度的IV，可以是null
+     * @return 傳回是否有移除物件
+     */
+    public boolean invalidate(final byte[] key, final int bit, final byte[] iv) {
+        return entries.remove(key(key, bit, iv)) != null;
+    }
+
+    /**
+     * 清空登錄表。
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 移除所有閒置超過指定時間的MagicCrypt物件。
+     */
+    public void evictExpired() {
+        if (idleTimeout > 0) {
+            evictExpired(System.nanoTime());
+        }
+    }
+
+    /**
+     * 移除所有閒置超過指定時間的MagicCrypt物件。
+     *
+     * @param now 傳入目前的時間(奈秒)
+     */
+    private void evictExpired(final long now) {
+        nextSweep = now + sweepInterval();
+        for (final Map.Entry<Key, Entry> e : entries.entrySet()) {
+            if (now - e.getValue().lastAccess >= idleTimeout && entries.remove(e.getKey(), e.getValue())) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 數量超過最大容量時，移除最久沒有被使用的MagicCrypt物件。一次會多移除大約1/16的容量，避免每次加入物件都要排序。
+     */
+    private void evictOverflow() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            final int size = entries.size();
+            if (size <= maxSize) {
+                return;
+            }
+            final List<Map.Entry<Key, Entry>> list = new ArrayList<>(size);
+            for (final Map.Entry<Key, Entry> e : entries.entrySet()) {
+                list.add(e);
+            }
+            // 先記下時間再排序，避免排序的途中時間被其它執行緒改變
+            final long[] times = new long[list.size()];
+            final Integer[] order = new Integer[list.size()];
+            for (int i = 0; i < times.length; ++i) {
+                times[i] = list.get(i).getValue().lastAccess;
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer a, final Integer b) {
+                    return Long.compare(times[a], times[b]);
+                }
+            });
+            int remove = order.length - (maxSize - maxSize / 16);
+            for (int i = 0; i < order.length && remove > 0; ++i) {
+                final Map.Entry<Key, Entry> e = list.get(order[i]);
+                if (entries.remove(e.getKey(), e.getValue())) {
+                    evictions.incrementAndGet();
+                    --remove;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 取得檢查閒置物件的間隔時間。
+     *
+     * @return 傳回間隔時間(奈秒)
+     */
+    private long sweepInterval() {
+        return Math.max(idleTimeout / 4, 1000000L);
+    }
+
+    /**
+     * 取得最大容量。
+     *
+     * @return 傳回最大容量
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 取得閒置時間。
+     *
+     * @return 傳回閒置時間(毫秒)，0表示不移除閒置的物件
+     */
+    public long getIdleTimeout() {
+        return idleTimeout / 1000000L;
+    }
+
+    /**
+     * 取得目前登錄表中的MagicCrypt物件數量。
+     *
+     * @return 傳回數量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 取得命中次數，也就是直接從登錄表取得MagicCrypt物件的次數。
+     *
+     * @return 傳回命中次數
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 取得未命中次數，也就是建立MagicCrypt物件的次數。
+     *
+     * @return 傳回未命中次數
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 取得因閒置或是超出容量而移除MagicCrypt物件的次數。
+     *
+     * @return 傳回移除次數
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
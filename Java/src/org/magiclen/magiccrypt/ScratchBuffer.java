@@ -0,0 +1,86 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+/**
+ * 每個執行緒各自重複使用的暫存陣列，避免在加/解密短字串時不斷產生新的陣列。陣列會一直被執行緒保留，存放過密鑰或明文的範圍，用完之後要由呼叫者清除。
+ *
+ * @author Magic Len
+ */
+final class ScratchBuffer {
+
+    // -----類別常數-----
+    /**
+     * 會被保留下來重複使用的最大陣列長度，超過這個長度的陣列用完就丟棄。
+     */
+    static final int MAX_RETAINED_LENGTH = 65536;
+    /**
+     * 最小的陣列長度。
+     */
+    private static final int MIN_LENGTH = 256;
+    /**
+     * 每個執行緒的位元組暫存陣列。
+     */
+    private static final ThreadLocal<byte[]> BYTES = new ThreadLocal<>();
+    /**
+     * 每個執行緒的字元暫存陣列。
+     */
+    private static final ThreadLocal<char[]> CHARS = new ThreadLocal<>();
+
+    // -----類別方法-----
+    /**
+     * 取得目前執行緒的位元組暫存陣列。
+     *
+     * @param minLength 傳入需要的最小長度
+     * @return 傳回長度至少為minLength的陣列，內容是未定義的
+     */
+    static byte[] bytes(final int minLength) {
+        byte[] buffer = BYTES.get();
+        if (buffer == null || buffer.length < minLength) {
+            buffer = new byte[Math.max(minLength, MIN_LENGTH)];
+            if (minLength <= MAX_RETAINED_LENGTH) {
+                BYTES.set(buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 取得目前執行緒的字元暫存陣列。
+     *
+     * @param minLength 傳入需要的最小長度
+     * @return 傳回長度至少為minLength的陣列，內容是未定義的
+     */
+    static char[] chars(final int minLength) {
+        char[] buffer = CHARS.get();
+        if (buffer == null || buffer.length < minLength) {
+            buffer = new char[Math.max(minLength, MIN_LENGTH)];
+            if (minLength <= MAX_RETAINED_LENGTH) {
+                CHARS.set(buffer);
+            }
+        }
+        return buffer;
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private ScratchBuffer() {
+    }
+}
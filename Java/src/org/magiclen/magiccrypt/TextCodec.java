@@ -0,0 +1,204 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.nio.charset.Charset;
+
+/**
+ * 在字元和位元組之間轉換，不需要先產生String或是新的陣列。轉換結果和String的getBytes、new String相同。
+ *
+ * @author Magic Len
+ */
+final class TextCodec {
+
+    // -----類別常數-----
+    /**
+     * UTF-8字元集。
+     */
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * 無法編碼的字元所使用的替代位元組。
+     */
+    private static final byte REPLACEMENT = '?';
+
+    // -----類別方法-----
+    /**
+     * 取得字元經過UTF-8編碼後的最大長度。
+     *
+     * @param length 傳入字元數量
+     * @return 傳回最大的位元組數量
+     */
+    static int maxUTF8Length(final int length) {
+        final long max = length * 3L;
+        if (max > Integer.MAX_VALUE - 64) {
+            throw new RuntimeException("The text is too long.");
+        }
+        return (int) max;
+    }
+
+    /**
+     * 將字元以UTF-8編碼，沒有成對的代理字元會被替換成「?」。
+     *
+     * @param text 傳入要編碼的字元
+     * @param offset 傳入字元的起始位置
+     * @param end 傳入字元的結束位置(不包含)
+     * @param dst 傳入輸出的陣列，必須至少有maxUTF8Length(end - offset)個位元組的空間
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    static int encodeUTF8(final CharSequence text, final int offset, final int end, final byte[] dst, int dp) {
+        for (int i = offset; i < end; ++i) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                dst[dp++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[dp++] = (byte) (0xC0 | (c >> 6));
+                dst[dp++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                final char d;
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(d = text.charAt(i + 1))) {
+                    dp = encodeCodePoint(Character.toCodePoint(c, d), dst, dp);
+                    ++i;
+                } else {
+                    dst[dp++] = REPLACEMENT;
+                }
+            } else {
+                dst[dp++] = (byte) (0xE0 | (c >> 12));
+                dst[dp++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[dp++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return dp;
+    }
+
+    /**
+     * 將字元以UTF-8編碼，沒有成對的代理字元會被替換成「?」。
+     *
+     * @param text 傳入要編碼的字元
+     * @param offset 傳入字元的起始位置
+     * @param end 傳入字元的結束位置(不包含)
+     * @param dst 傳入輸出的陣列，必須至少有maxUTF8Length(end - offset)個位元組的空間
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    static int encodeUTF8(final char[] text, final int offset, final int end, final byte[] dst, int dp) {
+        for (int i = offset; i < end; ++i) {
+            final char c = text[i];
+            if (c < 0x80) {
+                dst[dp++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[dp++] = (byte) (0xC0 | (c >> 6));
+                dst[dp++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                final char d;
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(d = text[i + 1])) {
+                    dp = encodeCodePoint(Character.toCodePoint(c, d), dst, dp);
+                    ++i;
+                } else {
+                    dst[dp++] = REPLACEMENT;
+                }
+            } else {
+                dst[dp++] = (byte) (0xE0 | (c >> 12));
+                dst[dp++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[dp++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return dp;
+    }
+
+    /**
+     * 將補充平面的字碼以4個位元組的UTF-8編碼。
+     *
+     * @param codePoint 傳入字碼
+     * @param dst 傳入輸出的陣列
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    private static int encodeCodePoint(final int codePoint, final byte[] dst, int dp) {
+        dst[dp++] = (byte) (0xF0 | (codePoint >> 18));
+        dst[dp++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        dst[dp++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        dst[dp++] = (byte) (0x80 | (codePoint & 0x3F));
+        return dp;
+    }
+
+    /**
+     * 將UTF-8資料解碼後加到StringBuilder中。全部都是ASCII字元時不會產生新的物件。
+     *
+     * @param src 傳入要解碼的資料
+     * @param offset 傳入資料的起始位置
+     * @param length 傳入資料的長度
+     * @param output 傳入輸出的StringBuilder
+     */
+    static void decodeUTF8(final byte[] src, final int offset, final int length, final StringBuilder output) {
+        final int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            if (src[i] < 0) {
+                output.append(new String(src, offset, length, UTF_8));
+                return;
+            }
+        }
+        output.ensureCapacity(output.length() + length);
+        for (int i = offset; i < end; ++i) {
+            output.append((char) src[i]);
+        }
+    }
+
+    /**
+     * 將字元以ISO-8859-1編碼，無法編碼的字元會被替換成「?」。
+     *
+     * @param text 傳入要編碼的字元
+     * @param offset 傳入字元的起始位置
+     * @param end 傳入字元的結束位置(不包含)
+     * @param dst 傳入輸出的陣列
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    static int encodeLatin1(final CharSequence text, final int offset, final int end, final byte[] dst, int dp) {
+        for (int i = offset; i < end; ++i) {
+            final char c = text.charAt(i);
+            dst[dp++] = c <= 0xFF ? (byte) c : REPLACEMENT;
+        }
+        return dp;
+    }
+
+    /**
+     * 將字元以ISO-8859-1編碼，無法編碼的字元會被替換成「?」。
+     *
+     * @param text 傳入要編碼的字元
+     * @param offset 傳入字元的起始位置
+     * @param end 傳入字元的結束位置(不包含)
+     * @param dst 傳入輸出的陣列
+     * @param dp 傳入輸出陣列的起始位置
+     * @return 傳回輸出陣列中最後一個位元組的下一個位置
+     */
+    static int encodeLatin1(final char[] text, final int offset, final int end, final byte[] dst, int dp) {
+        for (int i = offset; i < end; ++i) {
+            final char c = text[i];
+            dst[dp++] = c <= 0xFF ? (byte) c : REPLACEMENT;
+        }
+        return dp;
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private TextCodec() {
+    }
+}
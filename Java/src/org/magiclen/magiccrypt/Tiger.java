@@ -17,6 +17,10 @@
  */
 package org.magiclen.magiccrypt;
 
+import java.util.concurrent.ExecutorService;
+import org.magiclen.magiccrypt.lib.Batches;
+import org.magiclen.magiccrypt.lib.PackedData;
+
 /**
  * 計算Tiger雜奏值。
  *
@@ -24,6 +28,21 @@ package org.magiclen.magiccrypt;
  */
 public class Tiger {
 
+    // -----類別常數-----
+    /**
+     * 雜湊值的長度(位元組)。
+     */
+    public static final int HASH_LENGTH = 24;
+    /**
+     * 每個執行緒重複使用的雜湊物件。
+     */
+    private static final ThreadLocal<AwaruaTiger> TIGER = new ThreadLocal<AwaruaTiger>() {
+        @Override
+        protected AwaruaTiger initialValue() {
+            return new AwaruaTiger();
+        }
+    };
+
     // -----類別方法-----
     /**
      * 取得資料的Tiger雜湊值。
@@ -35,8 +54,97 @@ public class Tiger {
         if (data == null) {
             return null;
         }
-        final AwaruaTiger tiger = new AwaruaTiger();
-        return tiger.ComputeHash(data);
+        return getHash(data, 0, data.length);
+    }
+
+    /**
+     * 取得一段資料的Tiger雜湊值。使用目前執行緒重複使用的雜湊物件，不會複製資料。
+     *
+     * @param data 傳入要雜湊的資料
+     * @param offset 傳入資料的起始位置
+     * @param length 傳入資料的長度
+     * @return 傳回雜湊後資料內容
+     */
+    public static byte[] getHash(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        final AwaruaTiger tiger = TIGER.get();
+        tiger.Initialize();
+        tiger.HashCore(data, offset, length);
+        final byte[] result = new byte[HASH_LENGTH];
+        tiger.HashFinal(result, 0);
+        return result;
+    }
+
+    /**
+     * 批次取得多筆資料的Tiger雜湊值。整批資料共用同一個雜湊物件，結果依序連續存放在同一個陣列中。
+     *
+     * @param data 傳入要雜湊的資料，每筆資料都不能是null
+     * @return 傳回雜湊值，第i筆資料的雜湊值位於i * HASH_LENGTH
+     */
+    public static byte[] hashAll(final byte[][] data) {
+        return hashAll(data, null);
+    }
+
+    /**
+     * 批次取得多筆資料的Tiger雜湊值，並將資料分成數個部份交給執行緒池平行處理。每個部份共用同一個雜湊物件，結果依序連續存放在同一個陣列中。
+     *
+     * @param data 傳入要雜湊的資料，每筆資料都不能是null
+     * @param executor 傳入執行緒池，如果是null就在目前的執行緒處理
+     * @return 傳回雜湊值，第i筆資料的雜湊值位於i * HASH_LENGTH
+     */
+    public static byte[] hashAll(final byte[][] data, final ExecutorService executor) {
+        final byte[] output = new byte[data.length * HASH_LENGTH];
+        Batches.run(data.length, executor, new Batches.Range() {
+            @Override
+            public void run(final int from, final int to) {
+                final AwaruaTiger tiger = new AwaruaTiger();
+                for (int i = from; i < to; ++i) {
+                    final byte[] item = data[i];
+                    tiger.HashCore(item, 0, item.length);
+                    tiger.HashFinal(output, i * HASH_LENGTH);
+                    tiger.Initialize();
+                }
+            }
+        });
+        return output;
+    }
+
+    /**
+     * 批次取得以欄位方式存放之多筆資料的Tiger雜湊值。整批資料共用同一個雜湊物件，結果依序連續存放在同一個陣列中。
+     *
+     * @param data 傳入要雜湊的資料
+     * @return 傳回雜湊值，第i筆資料的雜湊值位於i * HASH_LENGTH
+     */
+    public static byte[] hashAll(final PackedData data) {
+        return hashAll(data, null);
+    }
+
+    /**
+     * 批次取得以欄位方式存放之多筆資料的Tiger雜湊值，並將資料分成數個部份交給執行緒池平行處理。每個部份共用同一個雜湊物件，結果依序連續存放在同一個陣列中。
+     *
+     * @param data 傳入要雜湊的資料
+     * @param executor 傳入執行緒池，如果是null就在目前的執行緒處理
+     * @return 傳回雜湊值，第i筆資料的雜湊值位於i * HASH_LENGTH
+     */
+    public static byte[] hashAll(final PackedData data, final ExecutorService executor) {
+        final byte[] array = data.getData();
+        final int[] offsets = data.getOffsets();
+        final int size = data.size();
+        final byte[] output = new byte[size * HASH_LENGTH];
+        Batches.run(size, executor, new Batches.Range() {
+            @Override
+            public void run(final int from, final int to) {
+                final AwaruaTiger tiger = new AwaruaTiger();
+                for (int i = from; i < to; ++i) {
+                    tiger.HashCore(array, offsets[i], offsets[i + 1] - offsets[i]);
+                    tiger.HashFinal(output, i * HASH_LENGTH);
+                    tiger.Initialize();
+                }
+            }
+        });
+        return output;
     }
 
     // -----建構子-----
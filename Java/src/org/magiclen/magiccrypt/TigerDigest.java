@@ -0,0 +1,130 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.security.MessageDigest;
+
+/**
+ * <p>
+ * 可以分段輸入資料的Tiger雜湊演算法。計算結果和Tiger.getHash相同，digest之後會自動重設，可以重複使用同一個物件而不需要重新配置內部的緩衝空間。</p>
+ *
+ * <p>
+ * 安裝MagicCryptProvider之後，也可以使用MessageDigest.getInstance("TIGER")來取得這個類別的物件。這個類別不是執行緒安全的。</p>
+ *
+ * @author Magic Len
+ * @see MagicCryptProvider
+ */
+public final class TigerDigest extends MessageDigest implements Cloneable {
+
+    // -----類別常數-----
+    /**
+     * 演算法名稱。
+     */
+    public static final String ALGORITHM = "TIGER";
+    /**
+     * 雜湊值的長度(位元組)。
+     */
+    public static final int DIGEST_LENGTH = 24;
+
+    // -----物件變數-----
+    /**
+     * 實際進行雜湊計算的物件。
+     */
+    private AwaruaTiger tiger;
+    /**
+     * 輸入單一個位元組時使用的暫存陣列。
+     */
+    private byte[] single = new byte[1];
+
+    // -----建構子-----
+    /**
+     * 建構子。
+     */
+    public TigerDigest() {
+        super(ALGORITHM);
+        tiger = new AwaruaTiger();
+    }
+
+    // -----物件方法-----
+    /**
+     * 輸入一個位元組。
+     *
+     * @param input 傳入位元組
+     */
+    @Override
+    protected void engineUpdate(final byte input) {
+        single[0] = input;
+        tiger.HashCore(single, 0, 1);
+    }
+
+    /**
+     * 輸入一段資料。
+     *
+     * @param input 傳入資料
+     * @param offset 傳入資料的起始位置
+     * @param len 傳入資料的長度
+     */
+    @Override
+    protected void engineUpdate(final byte[] input, final int offset, final int len) {
+        tiger.HashCore(input, offset, len);
+    }
+
+    /**
+     * 完成雜湊計算並重設狀態。
+     *
+     * @return 傳回24個位元組的雜湊值
+     */
+    @Override
+    protected byte[] engineDigest() {
+        final byte[] result = tiger.HashFinal();
+        tiger.Initialize();
+        return result;
+    }
+
+    /**
+     * 重設狀態。
+     */
+    @Override
+    protected void engineReset() {
+        tiger.Initialize();
+    }
+
+    /**
+     * 取得雜湊值的長度。
+     *
+     * @return 傳回24
+     */
+    @Override
+    protected int engineGetDigestLength() {
+        return DIGEST_LENGTH;
+    }
+
+    /**
+     * 複製目前的狀態。
+     *
+     * @return 傳回新的TigerDigest物件，和原本的物件互不影響
+     * @throws CloneNotSupportedException 不會拋出這個例外
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final TigerDigest clone = (TigerDigest) super.clone();
+        clone.tiger = new AwaruaTiger(tiger);
+        clone.single = new byte[1];
+        return clone;
+    }
+}
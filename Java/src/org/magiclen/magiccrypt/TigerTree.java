@@ -0,0 +1,487 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.magiclen.magiccrypt.lib.Batches;
+
+/**
+ * <p>
+ * Tiger樹狀雜湊(Tiger Tree Hash, THEX)。資料被切成1024個位元組的葉節點，葉節點的雜湊值為Tiger(0x00 + 資料)，內部節點的雜湊值為Tiger(0x01 + 左子節點 + 右子節點)，沒有配對的節點直接升到上一層。</p>
+ *
+ * <p>
+ * 葉節點會在ForkJoinPool上平行計算。物件會保留每一層的雜湊值，因此可以只重新驗證某個範圍的資料，或是和另一棵樹比較，找出內容不同的葉節點，不需要重新雜湊全部的資料。</p>
+ *
+ * @author Magic Len
+ */
+public final class TigerTree {
+
+    // -----類別類別-----
+    /**
+     * 平行計算某一層中一個範圍的節點雜湊值。範圍太大時會對半切割。
+     */
+    private static final class HashTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 葉節點的資料，或是下一層的雜湊值。計算檔案通道的葉節點時是null。
+         */
+        private final byte[] source;
+        /**
+         * 葉節點的資料來源，不是計算檔案通道的葉節點時是null。
+         */
+        private final FileChannel channel;
+        /**
+         * 資料的長度(位元組)，或是下一層的節點數量。
+         */
+        private final long length;
+        /**
+         * 是否為葉節點。
+         */
+        private final boolean leaf;
+        /**
+         * 這一層的雜湊值。
+         */
+        private final byte[] output;
+        /**
+         * 節點範圍，不包含to。
+         */
+        private final int from, to;
+        /**
+         * 不再切割的節點數量。
+         */
+        private final int threshold;
+
+        HashTask(final byte[] source, final FileChannel channel, final long length, final boolean leaf, final byte[] output, final int from, final int to, final int threshold) {
+            this.source = source;
+            this.channel = channel;
+            this.length = length;
+            this.leaf = leaf;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new HashTask(source, channel, length, leaf, output, from, middle, threshold), new HashTask(source, channel, length, leaf, output, middle, to, threshold));
+                return;
+            }
+            final AwaruaTiger tiger = new AwaruaTiger();
+            if (!leaf) {
+                for (int i = from; i < to; ++i) {
+                    hashNode(tiger, source, (int) length, i, output);
+                }
+            } else if (channel == null) {
+                for (int i = from; i < to; ++i) {
+                    final int offset = i * LEAF_SIZE;
+                    hashLeaf(tiger, source, offset, (int) Math.min(LEAF_SIZE, length - offset), output, i);
+                }
+            } else {
+                final byte[] buffer = new byte[Math.min(READ_LEAVES, to - from) * LEAF_SIZE];
+                for (int i = from; i < to; i += READ_LEAVES) {
+                    final int leaves = Math.min(READ_LEAVES, to - i);
+                    final long position = (long) i * LEAF_SIZE;
+                    final int c = (int) Math.min((long) leaves * LEAF_SIZE, length - position);
+                    try {
+                        readFully(channel, ByteBuffer.wrap(buffer, 0, c), position);
+                    } catch (final IOException ex) {
+                        throw new RuntimeException(ex.getMessage());
+                    }
+                    for (int j = 0; j < leaves; ++j) {
+                        final int offset = j * LEAF_SIZE;
+                        hashLeaf(tiger, buffer, offset, Math.min(LEAF_SIZE, c - offset), output, i + j);
+                    }
+                }
+            }
+        }
+    }
+
+    // -----類別常數-----
+    /**
+     * 葉節點的資料大小(位元組)。
+     */
+    public static final int LEAF_SIZE = 1024;
+    /**
+     * 每個節點的雜湊值長度(位元組)。
+     */
+    public static final int HASH_LENGTH = 24;
+    /**
+     * 葉節點的前綴。
+     */
+    private static final byte[] LEAF_PREFIX = {0x00};
+    /**
+     * 內部節點的前綴。
+     */
+    private static final byte[] NODE_PREFIX = {0x01};
+    /**
+     * 平行計算時，每個工作最少要處理的葉節點數量。
+     */
+    private static final int MIN_PARALLEL_LEAVES = 1024;
+    /**
+     * 平行計算時，每個工作最少要處理的內部節點數量。
+     */
+    private static final int MIN_PARALLEL_NODES = 16384;
+    /**
+     * 從檔案通道每次讀取的葉節點數量。
+     */
+    private static final int READ_LEAVES = 1024;
+
+    // -----物件常數-----
+    /**
+     * 資料的長度(位元組)。
+     */
+    private final long length;
+    /**
+     * 每一層的雜湊值。第0層是葉節點，最後一層是根節點。
+     */
+    private final byte[][] levels;
+
+    // -----建構子-----
+    /**
+     * 建構子。
+     *
+     * @param length 傳入資料的長度
+     * @param levels 傳入每一層的雜湊值
+     */
+    private TigerTree(final long length, final byte[][] levels) {
+        this.length = length;
+        this.levels = levels;
+    }
+
+    // -----類別方法-----
+    /**
+     * 使用預設的ForkJoinPool計算資料的Tiger樹狀雜湊。
+     *
+     * @param data 傳入要雜湊的資料
+     * @return 傳回Tiger樹狀雜湊
+     */
+    public static TigerTree build(final byte[] data) {
+        return build(data, null);
+    }
+
+    /**
+     * 計算資料的Tiger樹狀雜湊。
+     *
+     * @param data 傳入要雜湊的資料
+     * @param pool 傳入ForkJoinPool，如果是null就使用預設的ForkJoinPool
+     * @return 傳回Tiger樹狀雜湊
+     */
+    public static TigerTree build(final byte[] data, final ForkJoinPool pool) {
+        final ForkJoinPool p = pool != null ? pool : Batches.getDefaultPool();
+        final int leaves = leafCount(data.length);
+        final byte[] leafLevel = new byte[leaves * HASH_LENGTH];
+        p.invoke(new HashTask(data, null, data.length, true, leafLevel, 0, leaves, threshold(leaves, MIN_PARALLEL_LEAVES, p)));
+        return new TigerTree(data.length, buildLevels(leafLevel, p));
+    }
+
+    /**
+     * 使用預設的ForkJoinPool計算檔案的Tiger樹狀雜湊。
+     *
+     * @param channel 傳入要雜湊的檔案通道，會從頭讀到尾，但不會改變通道的位置
+     * @return 傳回Tiger樹狀雜湊
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public static TigerTree build(final FileChannel channel) throws IOException {
+        return build(channel, null);
+    }
+
+    /**
+     * 計算檔案的Tiger樹狀雜湊。每個工作各自使用位置讀取。
+     *
+     * @param channel 傳入要雜湊的檔案通道，會從頭讀到尾，但不會改變通道的位置
+     * @param pool 傳入ForkJoinPool，如果是null就使用預設的ForkJoinPool
+     * @return 傳回Tiger樹狀雜湊
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public static TigerTree build(final FileChannel channel, final ForkJoinPool pool) throws IOException {
+        final ForkJoinPool p = pool != null ? pool : Batches.getDefaultPool();
+        final long size = channel.size();
+        final int leaves = leafCount(size);
+        final byte[] leafLevel = new byte[leaves * HASH_LENGTH];
+        p.invoke(new HashTask(null, channel, size, true, leafLevel, 0, leaves, threshold(leaves, MIN_PARALLEL_LEAVES, p)));
+        return new TigerTree(size, buildLevels(leafLevel, p));
+    }
+
+    /**
+     * 用儲存起來的葉節點雜湊值重建Tiger樹狀雜湊。
+     *
+     * @param length 傳入資料的長度
+     * @param leafHashes 傳入所有葉節點的雜湊值，依序排列
+     * @return 傳回Tiger樹狀雜湊
+     */
+    public static TigerTree fromLeaves(final long length, final byte[] leafHashes) {
+        if (length < 0 || leafHashes.length != leafCount(length) * HASH_LENGTH) {
+            throw new RuntimeException("The number of leaf hashes does not match the length!");
+        }
+        return new TigerTree(length, buildLevels(leafHashes.clone(), Batches.getDefaultPool()));
+    }
+
+    /**
+     * 計算葉節點的數量。空的資料也有一個葉節點。
+     *
+     * @param length 傳入資料的長度
+     * @return 傳回葉節點的數量
+     */
+    private static int leafCount(final long length) {
+        final long leaves = Math.max(1, (length + LEAF_SIZE - 1) / LEAF_SIZE);
+        if (leaves > (Integer.MAX_VALUE - 64) / HASH_LENGTH) {
+            throw new RuntimeException("The data is too large.");
+        }
+        return (int) leaves;
+    }
+
+    /**
+     * 計算平行處理時不再切割的節點數量，讓每個執行緒大約分到4個範圍。
+     *
+     * @param nodes 傳入節點的總數量
+     * @param min 傳入最少的節點數量
+     * @param pool 傳入ForkJoinPool
+     * @return 傳回節點數量
+     */
+    private static int threshold(final int nodes, final int min, final ForkJoinPool pool) {
+        final int parts = pool.getParallelism() * 4;
+        return Math.max(min, (nodes + parts - 1) / parts);
+    }
+
+    /**
+     * 由葉節點的雜湊值往上計算每一層，直到根節點。
+     *
+     * @param leafLevel 傳入葉節點的雜湊值
+     * @param pool 傳入ForkJoinPool
+     * @return 傳回每一層的雜湊值
+     */
+    private static byte[][] buildLevels(final byte[] leafLevel, final ForkJoinPool pool) {
+        int count = leafLevel.length / HASH_LENGTH;
+        int height = 1;
+        for (int n = count; n > 1; n = (n + 1) / 2) {
+            ++height;
+        }
+        final byte[][] levels = new byte[height][];
+        levels[0] = leafLevel;
+        for (int k = 1; k < height; ++k) {
+            final int parents = (count + 1) / 2;
+            final byte[] level = new byte[parents * HASH_LENGTH];
+            final HashTask task = new HashTask(levels[k - 1], null, count, false, level, 0, parents, threshold(parents, MIN_PARALLEL_NODES, pool));
+            if (parents > MIN_PARALLEL_NODES) {
+                pool.invoke(task);
+            } else {
+                task.compute();
+            }
+            levels[k] = level;
+            count = parents;
+        }
+        return levels;
+    }
+
+    /**
+     * 計算一個葉節點的雜湊值。
+     *
+     * @param tiger 傳入計算用的物件
+     * @param data 傳入資料
+     * @param offset 傳入葉節點在資料中的起始位置
+     * @param length 傳入葉節點的長度
+     * @param output 傳入輸出的陣列
+     * @param index 傳入葉節點的索引
+     */
+    private static void hashLeaf(final AwaruaTiger tiger, final byte[] data, final int offset, final int length, final byte[] output, final int index) {
+        tiger.HashCore(LEAF_PREFIX, 0, 1);
+        tiger.HashCore(data, offset, length);
+        System.arraycopy(tiger.HashFinal(), 0, output, index * HASH_LENGTH, HASH_LENGTH);
+        tiger.Initialize();
+    }
+
+    /**
+     * 計算一個內部節點的雜湊值。沒有配對的節點直接複製到上一層。
+     *
+     * @param tiger 傳入計算用的物件
+     * @param children 傳入下一層的雜湊值
+     * @param count 傳入下一層的節點數量
+     * @param index 傳入節點在這一層的索引
+     * @param output 傳入這一層的雜湊值
+     */
+    private static void hashNode(final AwaruaTiger tiger, final byte[] children, final int count, final int index, final byte[] output) {
+        final int left = index * 2;
+        if (left + 1 < count) {
+            tiger.HashCore(NODE_PREFIX, 0, 1);
+            tiger.HashCore(children, left * HASH_LENGTH, HASH_LENGTH * 2);
+            System.arraycopy(tiger.HashFinal(), 0, output, index * HASH_LENGTH, HASH_LENGTH);
+            tiger.Initialize();
+        } else {
+            System.arraycopy(children, left * HASH_LENGTH, output, index * HASH_LENGTH, HASH_LENGTH);
+        }
+    }
+
+    /**
+     * 從檔案通道的指定位置開始讀取資料，直到緩衝區已滿。
+     *
+     * @param channel 傳入檔案通道
+     * @param buffer 傳入緩衝區
+     * @param position 傳入檔案中的位置
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，或是檔案變短時，會拋出這個例外
+     */
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int c = channel.read(buffer, position);
+            if (c < 0) {
+                throw new IOException("The file became shorter while being hashed.");
+            }
+            position += c;
+        }
+    }
+
+    // -----物件方法-----
+    /**
+     * 取得資料的長度。
+     *
+     * @return 傳回資料的長度(位元組)
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * 取得根節點的雜湊值。
+     *
+     * @return 傳回24個位元組的雜湊值
+     */
+    public byte[] getRoot() {
+        return levels[levels.length - 1].clone();
+    }
+
+    /**
+     * 取得層數，包含葉節點和根節點。
+     *
+     * @return 傳回層數
+     */
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * 取得某一層所有節點的雜湊值。
+     *
+     * @param level 傳入層的索引，0是葉節點，getLevelCount() - 1是根節點
+     * @return 傳回依序排列的雜湊值，每個雜湊值有24個位元組
+     */
+    public byte[] getLevel(final int level) {
+        return levels[level].clone();
+    }
+
+    /**
+     * 取得葉節點的數量。
+     *
+     * @return 傳回葉節點的數量
+     */
+    public int getLeafCount() {
+        return levels[0].length / HASH_LENGTH;
+    }
+
+    /**
+     * 取得某個葉節點的雜湊值。
+     *
+     * @param index 傳入葉節點的索引，葉節點涵蓋的資料從index * LEAF_SIZE開始
+     * @return 傳回24個位元組的雜湊值
+     */
+    public byte[] getLeafHash(final int index) {
+        return Arrays.copyOfRange(levels[0], index * HASH_LENGTH, (index + 1) * HASH_LENGTH);
+    }
+
+    /**
+     * 重新驗證一個範圍的資料。只會雜湊這個範圍涵蓋的葉節點。
+     *
+     * @param offset 傳入資料在原本資料中的位置，必須是LEAF_SIZE的倍數
+     * @param data 傳入要驗證的資料，長度必須是LEAF_SIZE的倍數，或是一直到原本資料的結尾
+     * @return 傳回資料是否和這棵樹相符
+     */
+    public boolean verify(final long offset, final byte[] data) {
+        if (offset < 0 || offset % LEAF_SIZE != 0 || offset + data.length > length || (data.length % LEAF_SIZE != 0 && offset + data.length != length)) {
+            throw new RuntimeException("The range is not aligned to the leaves of the tree!");
+        }
+        final int first = (int) (offset / LEAF_SIZE);
+        final int leaves = data.length == 0 && length == 0 ? 1 : (data.length + LEAF_SIZE - 1) / LEAF_SIZE;
+        final byte[] hashes = new byte[leaves * HASH_LENGTH];
+        final AwaruaTiger tiger = new AwaruaTiger();
+        for (int i = 0; i < leaves; ++i) {
+            final int start = i * LEAF_SIZE;
+            hashLeaf(tiger, data, start, Math.min(LEAF_SIZE, data.length - start), hashes, i);
+        }
+        final byte[] leafLevel = levels[0];
+        for (int i = 0; i < hashes.length; ++i) {
+            if (hashes[i] != leafLevel[first * HASH_LENGTH + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 和另一棵樹比較，找出內容不同的葉節點。從根節點往下只走進雜湊值不同的子樹。
+     *
+     * @param other 傳入另一棵相同長度之資料的Tiger樹狀雜湊
+     * @return 傳回內容不同的葉節點索引，由小到大排列
+     */
+    public int[] diff(final TigerTree other) {
+        if (other.length != length) {
+            throw new RuntimeException("The trees are built from data of different lengths!");
+        }
+        int[] nodes = {0};
+        int count = 1;
+        for (int k = levels.length - 1; k >= 0; --k) {
+            final byte[] a = levels[k];
+            final byte[] b = other.levels[k];
+            final int size = a.length / HASH_LENGTH;
+            final int[] next = new int[count * 2];
+            int n = 0;
+            for (int i = 0; i < count; ++i) {
+                final int node = nodes[i];
+                if (node >= size) {
+                    continue;
+                }
+                final int p = node * HASH_LENGTH;
+                boolean different = false;
+                for (int j = 0; j < HASH_LENGTH; ++j) {
+                    if (a[p + j] != b[p + j]) {
+                        different = true;
+                        break;
+                    }
+                }
+                if (different) {
+                    if (k == 0) {
+                        next[n++] = node;
+                    } else {
+                        next[n++] = node * 2;
+                        next[n++] = node * 2 + 1;
+                    }
+                }
+            }
+            nodes = next;
+            count = n;
+        }
+        return Arrays.copyOf(nodes, count);
+    }
+}
@@ -27,7 +27,7 @@ public final class Version {
     /**
      * 主版本號碼。當程式架構有了重大改變，將會調整這項數值。
      */
-    public static final int MAJOR = 2;
+    public static final int MAJOR = 3;
     /**
      * 副版本號碼。當程式新增了功能，將會調整這項數值。
      */
@@ -35,7 +35,7 @@ public final class Version {
     /**
      * 維護版本號碼。當程式優化或是修正了一些問題，將會調整這項數值。
      */
-    public static final int MAINTENANCE = 3;
+    public static final int MAINTENANCE = 0;
 
     /**
      * 私有的建構子，將無法被實體化。
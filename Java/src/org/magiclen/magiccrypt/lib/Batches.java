@@ -0,0 +1,113 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 將批次工作分成數個連續的範圍，交給執行緒池平行處理。批次加/解密和批次雜湊都使用這個類別，平行雜湊和平行分段加/解密也共用這裡的預設ForkJoinPool。
+ *
+ * @author Magic Len
+ */
+public final class Batches {
+
+    // -----類別介面-----
+    /**
+     * 處理一個範圍的工作。
+     */
+    public interface Range {
+
+        /**
+         * 處理一個範圍的工作。
+         *
+         * @param from 傳入第一筆工作的索引
+         * @param to 傳入最後一筆工作的下一個索引
+         */
+        void run(int from, int to);
+    }
+
+    // -----類別類別-----
+    /**
+     * 預設的ForkJoinPool，第一次使用時才會建立。
+     */
+    private static final class DefaultPool {
+
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    // -----類別方法-----
+    /**
+     * 取得預設的ForkJoinPool。沒有指定ForkJoinPool的平行工作都使用這個池子，整個程式庫只會建立一個。
+     *
+     * @return 傳回預設的ForkJoinPool
+     */
+    public static ForkJoinPool getDefaultPool() {
+        return DefaultPool.POOL;
+    }
+
+    /**
+     * 將工作分成數個部份交給執行緒池平行處理，並等待全部完成。每個部份最少有CipherCrpyt.MIN_PARALLEL_BATCH_SIZE筆工作，工作不多或是沒有執行緒池時，直接在目前的執行緒處理。
+     *
+     * @param length 傳入工作的數量
+     * @param executor 傳入執行緒池，可以是null
+     * @param range 傳入處理一個範圍的工作的物件
+     */
+    public static void run(final int length, final ExecutorService executor, final Range range) {
+        final int parts = Runtime.getRuntime().availableProcessors() * 4;
+        final int chunkSize = Math.max(CipherCrpyt.MIN_PARALLEL_BATCH_SIZE, (length + parts - 1) / parts);
+        if (executor == null || length <= chunkSize) {
+            range.run(0, length);
+            return;
+        }
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < length; i += chunkSize) {
+            final int from = i;
+            final int to = Math.min(i + chunkSize, length);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    range.run(from, to);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex.getMessage());
+        } catch (final ExecutionException ex) {
+            throw new RuntimeException(ex.getCause().getMessage());
+        }
+    }
+
+    // -----建構子-----
+    /**
+     * 私有建構子，無法給外界實體化。
+     */
+    private Batches() {
+    }
+}
@@ -20,19 +20,38 @@ package org.magiclen.magiccrypt.lib;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
 import java.security.Key;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import static org.magiclen.magiccrypt.lib.Crypt.BUFFER_SIZE;
 
 /**
- * 透過Cipher來實現加/解密。
+ * 透過Cipher來實現加/解密。密鑰和初始化向量在建構後不會再改變，Cipher物件會從池子中借出，用完再歸還，因此同一個物件可以同時被多個執行緒使用。
+ *
+ * @see CipherPool
  *
  * @author Magic Len
  */
 public abstract class CipherCrpyt extends Crypt {
 
+    // -----類別常數-----
+    /**
+     * 平行批次處理時，每個工作最少要處理的資料筆數。
+     */
+    public static final int MIN_PARALLEL_BATCH_SIZE = 256;
+    /**
+     * 加/解密檔案時使用的緩衝空間大小。
+     */
+    public static final int FILE_BUFFER_SIZE = 1 << 20;
+
     // -----物件變數-----
     /**
      * 加/解密的密鑰。
@@ -43,20 +62,454 @@ public abstract class CipherCrpyt extends Crypt {
      */
     protected IvParameterSpec iv;
     /**
-     * Cipher 物件。
+     * 區塊大小(位元組)，第一次使用時才從Cipher物件取得，0表示還沒有取得。
+     */
+    private volatile int blockSize;
+    /**
+     * 存放已初始化之Cipher物件的池子。
      */
-    protected Cipher cipher;
+    private volatile CipherPool cipherPool = new CipherPool(this, CipherPool.DEFAULT_MAX_SIZE, CipherPool.DEFAULT_IDLE_TIMEOUT);
+
+    // -----抽象方法-----
+    /**
+     * 建立新的Cipher物件。
+     *
+     * @return 傳回尚未初始化的Cipher物件
+     * @throws java.security.GeneralSecurityException 當找不到演算法或是填充方式時，會拋出這個例外
+     */
+    protected abstract Cipher createCipher() throws GeneralSecurityException;
 
     // -----物件方法-----
+    /**
+     * 取得存放已初始化之Cipher物件的池子。
+     *
+     * @return 傳回CipherPool物件
+     */
+    public CipherPool getCipherPool() {
+        return cipherPool;
+    }
+
+    /**
+     * 重新設定存放Cipher物件的池子。原本池子中的Cipher物件將會被捨棄。
+     *
+     * @param maxSize 傳入每種模式的最大容量
+     * @param idleTimeout 傳入閒置時間(毫秒)，小於等於0表示不移除閒置的物件
+     */
+    public void configureCipherPool(final int maxSize, final long idleTimeout) {
+        final CipherPool oldPool = cipherPool;
+        cipherPool = new CipherPool(this, maxSize, idleTimeout);
+        oldPool.clear();
+    }
+
+    /**
+     * 預先建立並初始化Cipher物件，避免第一次加/解密時的延遲。
+     *
+     * @param count 傳入每種模式要準備的數量
+     */
+    public void warmUp(final int count) {
+        cipherPool.warmUp(count);
+    }
+
+    /**
+     * 取得區塊大小。第一次呼叫時會從池子借出Cipher物件來取得，因此子類別只需要實作createCipher。
+     *
+     * @return 傳回區塊大小(位元組)
+     */
+    public int getBlockSize() {
+        int size = blockSize;
+        if (size == 0) {
+            try {
+                final CipherPool pool = cipherPool;
+                final Cipher cipher = pool.borrow(Cipher.ENCRYPT_MODE);
+                size = cipher.getBlockSize();
+                pool.release(cipher, Cipher.ENCRYPT_MODE);
+            } catch (final GeneralSecurityException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+            if (size <= 0) {
+                throw new RuntimeException("The cipher must be a block cipher!");
+            }
+            blockSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * 取得加密後的資料大小。因為使用PKCS5填充方式，加密後的大小一定是區塊大小的倍數，且至少會比原本的資料多1個位元組。
+     *
+     * @param inputLength 傳入要加密的資料大小
+     * @return 傳回加密後的資料大小
+     */
+    public int getOutputSize(final int inputLength) {
+        final int blockSize = getBlockSize();
+        return (inputLength / blockSize + 1) * blockSize;
+    }
+
+    /**
+     * 以指定的模式加/解密資料，並直接寫入輸出陣列中。最後一個區塊有錯誤時，和decrypt(byte[])一樣改用資料流的方式處理。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param input 傳入輸入的資料
+     * @param inputOffset 傳入輸入資料的起始位置
+     * @param inputLength 傳入輸入資料的長度
+     * @param output 傳入輸出的陣列
+     * @param outputOffset 傳入輸出陣列的起始位置
+     * @return 傳回寫入輸出陣列的資料長度
+     */
+    private int crypt(final int mode, final byte[] input, final int inputOffset, final int inputLength, final byte[] output, final int outputOffset) {
+        try {
+            final CipherPool pool = cipherPool;
+            final Cipher cipher = pool.borrow(mode);
+            try {
+                final int length = cipher.doFinal(input, inputOffset, inputLength, output, outputOffset);
+                pool.release(cipher, mode);
+                return length;
+            } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+                pool.recycle(cipher, mode);
+                // 讓最後一個區塊有錯誤的資料，和使用資料流時一樣被處理。doFinal失敗時不會寫入輸出陣列，因此輸入和輸出是同一個陣列時，輸入的資料仍然是完整的
+                final byte[] data = Arrays.copyOfRange(input, inputOffset, inputOffset + inputLength);
+                final byte[] result = mode == Cipher.ENCRYPT_MODE ? super.encrypt(data, null) : super.decrypt(data, null);
+                System.arraycopy(result, 0, output, outputOffset, result.length);
+                return result.length;
+            } catch (final ShortBufferException | RuntimeException ex) {
+                pool.recycle(cipher, mode);
+                throw ex;
+            }
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 加密資料，並直接寫入輸出陣列中，不會產生額外的物件。輸入和輸出可以是同一個陣列。
+     *
+     * @param input 傳入要加密的資料
+     * @param inputOffset 傳入要加密之資料的起始位置
+     * @param inputLength 傳入要加密之資料的長度
+     * @param output 傳入輸出的陣列，從outputOffset開始必須至少有getOutputSize(inputLength)個位元組的空間
+     * @param outputOffset 傳入輸出陣列的起始位置
+     * @return 傳回寫入輸出陣列的資料長度
+     */
+    public int encrypt(final byte[] input, final int inputOffset, final int inputLength, final byte[] output, final int outputOffset) {
+        return crypt(Cipher.ENCRYPT_MODE, input, inputOffset, inputLength, output, outputOffset);
+    }
+
+    /**
+     * 解密資料，並直接寫入輸出陣列中，不會產生額外的物件。輸入和輸出可以是同一個陣列。最後一個區塊有錯誤時，結果和decrypt(byte[])相同。
+     *
+     * @param input 傳入要解密的資料
+     * @param inputOffset 傳入要解密之資料的起始位置
+     * @param inputLength 傳入要解密之資料的長度
+     * @param output 傳入輸出的陣列，從outputOffset開始必須至少有inputLength個位元組的空間
+     * @param outputOffset 傳入輸出陣列的起始位置
+     * @return 傳回寫入輸出陣列的資料長度
+     */
+    public int decrypt(final byte[] input, final int inputOffset, final int inputLength, final byte[] output, final int outputOffset) {
+        return crypt(Cipher.DECRYPT_MODE, input, inputOffset, inputLength, output, outputOffset);
+    }
+
+    /**
+     * 以指定的模式加/解密資料。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param data 傳入輸入的資料
+     * @return 傳回輸出的資料
+     */
+    private byte[] crypt(final int mode, final byte[] data) {
+        try {
+            final CipherPool pool = cipherPool;
+            final Cipher cipher = pool.borrow(mode);
+            try {
+                final byte[] result = cipher.doFinal(data);
+                pool.release(cipher, mode);
+                return result;
+            } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+                pool.recycle(cipher, mode);
+                // 讓最後一個區塊有錯誤的資料，和使用資料流時一樣被處理
+                return mode == Cipher.ENCRYPT_MODE ? super.encrypt(data, null) : super.decrypt(data, null);
+            } catch (final RuntimeException ex) {
+                pool.recycle(cipher, mode);
+                throw ex;
+            }
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 加密資料。沒有監聽者物件時，會直接使用Cipher物件來加密，不會經過資料流。
+     *
+     * @param data 傳入要加密的資料
+     * @param listener 傳入監聽者物件
+     * @return 傳回加密後的資料
+     */
+    @Override
+    public byte[] encrypt(final byte[] data, final Crypt.CryptListener listener) {
+        if (listener != null) {
+            return super.encrypt(data, listener);
+        }
+        return crypt(Cipher.ENCRYPT_MODE, data);
+    }
+
+    /**
+     * 解密資料。沒有監聽者物件時，會直接使用Cipher物件來解密，不會經過資料流。
+     *
+     * @param data 傳入要解密的資料
+     * @param listener 傳入監聽者物件
+     * @return 傳回解密後的資料
+     */
+    @Override
+    public byte[] decrypt(final byte[] data, final Crypt.CryptListener listener) {
+        if (listener != null) {
+            return super.decrypt(data, listener);
+        }
+        return crypt(Cipher.DECRYPT_MODE, data);
+    }
+
+    /**
+     * 以指定的模式直接加/解密緩衝區中的資料，直接配置的緩衝區也不需要先複製到陣列中。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param src 傳入輸入的資料
+     * @param dst 傳入輸出的緩衝區
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    private int crypt(final int mode, final ByteBuffer src, final ByteBuffer dst) {
+        final int srcPosition = src.position();
+        final int dstPosition = dst.position();
+        try {
+            final CipherPool pool = cipherPool;
+            final Cipher cipher = pool.borrow(mode);
+            if (dst.remaining() < cipher.getOutputSize(src.remaining())) {
+                pool.release(cipher, mode);
+                throw new RuntimeException("The output buffer is too small.");
+            }
+            try {
+                final int length = cipher.doFinal(src, dst);
+                pool.release(cipher, mode);
+                return length;
+            } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+                pool.recycle(cipher, mode);
+                // 讓最後一個區塊有錯誤的資料，和使用資料流時一樣被處理
+                src.position(srcPosition);
+                dst.position(dstPosition);
+                final byte[] data = new byte[src.remaining()];
+                src.get(data);
+                final byte[] result = mode == Cipher.ENCRYPT_MODE ? super.encrypt(data, null) : super.decrypt(data, null);
+                dst.put(result);
+                return result.length;
+            } catch (final ShortBufferException | RuntimeException ex) {
+                pool.recycle(cipher, mode);
+                throw ex;
+            }
+        } catch (final Exception ex) {
+            src.position(srcPosition);
+            dst.position(dstPosition);
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 加密緩衝區中從position到limit之間的資料，並將加密後的資料從dst的position開始寫入。資料會直接交給Cipher物件處理，不會複製到陣列中。
+     *
+     * @param src 傳入要加密的資料
+     * @param dst 傳入輸出的緩衝區，必須至少有getOutputSize(src.remaining())個位元組的空間
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    @Override
+    public int encrypt(final ByteBuffer src, final ByteBuffer dst) {
+        return crypt(Cipher.ENCRYPT_MODE, src, dst);
+    }
+
+    /**
+     * 解密緩衝區中從position到limit之間的資料，並將解密後的資料從dst的position開始寫入。資料會直接交給Cipher物件處理，不會複製到陣列中。
+     *
+     * @param src 傳入要解密的資料
+     * @param dst 傳入輸出的緩衝區，必須至少有src.remaining()個位元組的空間
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    @Override
+    public int decrypt(final ByteBuffer src, final ByteBuffer dst) {
+        return crypt(Cipher.DECRYPT_MODE, src, dst);
+    }
+
+    /**
+     * 以指定的模式批次加/解密資料，整批資料共用同一個Cipher物件。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param data 傳入輸入的資料
+     * @param from 傳入要處理的第一筆資料的索引
+     * @param to 傳入要處理的最後一筆資料的下一個索引
+     * @param results 傳入存放結果的陣列，結果的索引和輸入的資料相同
+     */
+    private void cryptAll(final int mode, final byte[][] data, final int from, final int to, final byte[][] results) {
+        try {
+            final CipherPool pool = cipherPool;
+            Cipher cipher = pool.borrow(mode);
+            for (int i = from; i < to; ++i) {
+                try {
+                    results[i] = cipher.doFinal(data[i]);
+                } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+                    pool.recycle(cipher, mode);
+                    results[i] = crypt(mode, data[i]);
+                    cipher = pool.borrow(mode);
+                }
+            }
+            pool.release(cipher, mode);
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 以指定的模式批次加/解密資料，並將資料分成數個部份交給執行緒池平行處理。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param data 傳入輸入的資料
+     * @param executor 傳入執行緒池
+     * @return 傳回輸出的資料，順序和輸入的資料相同
+     */
+    private byte[][] cryptAll(final int mode, final byte[][] data, final ExecutorService executor) {
+        final int length = data.length;
+        final byte[][] results = new byte[length][];
+        Batches.run(length, executor, new Batches.Range() {
+            @Override
+            public void run(final int from, final int to) {
+                cryptAll(mode, data, from, to, results);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * 批次加密資料。整批資料共用同一個已初始化的Cipher物件。
+     *
+     * @param data 傳入要加密的資料
+     * @return 傳回加密後的資料，順序和輸入的資料相同
+     */
+    public byte[][] encryptAll(final byte[][] data) {
+        final byte[][] results = new byte[data.length][];
+        cryptAll(Cipher.ENCRYPT_MODE, data, 0, data.length, results);
+        return results;
+    }
+
+    /**
+     * 批次加密資料，並將資料分成數個部份交給執行緒池平行處理。
+     *
+     * @param data 傳入要加密的資料
+     * @param executor 傳入執行緒池
+     * @return 傳回加密後的資料，順序和輸入的資料相同
+     */
+    public byte[][] encryptAll(final byte[][] data, final ExecutorService executor) {
+        return cryptAll(Cipher.ENCRYPT_MODE, data, executor);
+    }
+
+    /**
+     * 批次解密資料。整批資料共用同一個已初始化的Cipher物件。
+     *
+     * @param data 傳入要解密的資料
+     * @return 傳回解密後的資料，順序和輸入的資料相同
+     */
+    public byte[][] decryptAll(final byte[][] data) {
+        final byte[][] results = new byte[data.length][];
+        cryptAll(Cipher.DECRYPT_MODE, data, 0, data.length, results);
+        return results;
+    }
+
+    /**
+     * 批次解密資料，並將資料分成數個部份交給執行緒池平行處理。
+     *
+     * @param data 傳入要解密的資料
+     * @param executor 傳入執行緒池
+     * @return 傳回解密後的資料，順序和輸入的資料相同
+     */
+    public byte[][] decryptAll(final byte[][] data, final ExecutorService executor) {
+        return cryptAll(Cipher.DECRYPT_MODE, data, executor);
+    }
+
+    /**
+     * 以指定的模式加/解密以欄位方式存放的多筆資料，整批資料共用同一個Cipher物件，輸出的陣列只會配置一次。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param packed 傳入輸入的資料
+     * @return 傳回輸出的資料
+     */
+    private PackedData cryptPacked(final int mode, final PackedData packed) {
+        final byte[] data = packed.getData();
+        final int[] offsets = packed.getOffsets();
+        final int size = packed.size();
+        final int outputLength;
+        if (mode == Cipher.ENCRYPT_MODE) {
+            long total = 0;
+            for (int i = 0; i < size; ++i) {
+                total += getOutputSize(packed.getLength(i));
+            }
+            if (total > Integer.MAX_VALUE) {
+                throw new RuntimeException("The total length of the encrypted data is too long.");
+            }
+            outputLength = (int) total;
+        } else {
+            // 解密後的資料不會比密文長
+            outputLength = offsets[size] - offsets[0];
+        }
+        final byte[] output = new byte[outputLength];
+        final int[] outputOffsets = new int[size + 1];
+        try {
+            final CipherPool pool = cipherPool;
+            Cipher cipher = pool.borrow(mode);
+            int p = 0;
+            for (int i = 0; i < size; ++i) {
+                outputOffsets[i] = p;
+                try {
+                    p += cipher.doFinal(data, offsets[i], offsets[i + 1] - offsets[i], output, p);
+                } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+                    pool.recycle(cipher, mode);
+                    final byte[] result = crypt(mode, packed.get(i));
+                    System.arraycopy(result, 0, output, p, result.length);
+                    p += result.length;
+                    cipher = pool.borrow(mode);
+                }
+            }
+            outputOffsets[size] = p;
+            pool.release(cipher, mode);
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+        return new PackedData(output, outputOffsets);
+    }
+
+    /**
+     * 批次加密以欄位方式存放的多筆資料。每筆資料加密後的長度可以事先算出，因此輸出的陣列只會配置一次。
+     *
+     * @param packed 傳入要加密的資料
+     * @return 傳回加密後的資料，順序和輸入的資料相同
+     */
+    public PackedData encryptPacked(final PackedData packed) {
+        return cryptPacked(Cipher.ENCRYPT_MODE, packed);
+    }
+
+    /**
+     * 批次解密以欄位方式存放的多筆資料，輸出的陣列只會配置一次，長度和輸入的資料相同。
+     *
+     * @param packed 傳入要解密的資料
+     * @return 傳回解密後的資料，順序和輸入的資料相同
+     */
+    public PackedData decryptPacked(final PackedData packed) {
+        return cryptPacked(Cipher.DECRYPT_MODE, packed);
+    }
+
     /**
      * 加/解密資料。
      *
+     * @param cipher 傳入已初始化的Cipher物件
      * @param inputData 傳入輸入的資料流
      * @param outputData 傳入輸出的資料流
      * @param listener 傳入監聽者物件
+     * @return 傳回Cipher物件是否有正常結束，可以直接再被使用
      * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     * @throws java.security.GeneralSecurityException 當加/解密時發生問題，會拋出這個例外
      */
-    protected void crypt(final InputStream inputData, final OutputStream outputData, final Crypt.CryptListener listener) throws IOException {
+    protected boolean crypt(final Cipher cipher, final InputStream inputData, final OutputStream outputData, final Crypt.CryptListener listener) throws IOException, GeneralSecurityException {
         final int totalBytes = inputData.available();
 
         if (listener != null) {
@@ -64,12 +517,14 @@ public abstract class CipherCrpyt extends Crypt {
         }
 
         long sum = 0;
-        try (final CipherOutputStream cos = new CipherOutputStream(outputData, cipher)) {
+        boolean finished = true;
+        try (final OutputStream os = outputData) {
             int c;
             final byte[] buffer = new byte[BUFFER_SIZE];
+            final byte[] output = new byte[BUFFER_SIZE + 2 * cipher.getBlockSize()];
             while ((c = inputData.read(buffer)) >= 0) {
-                cos.write(buffer, 0, c);
                 if (c > 0) {
+                    os.write(output, 0, cipher.update(buffer, 0, c, output));
                     sum += c;
                 }
                 if (listener != null) {
@@ -79,26 +534,44 @@ public abstract class CipherCrpyt extends Crypt {
                 }
             }
             inputData.close();
-            cos.flush();
+            try {
+                os.write(output, 0, cipher.doFinal(output, 0));
+            } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+                // 和CipherOutputStream一樣忽略最後一個區塊的錯誤，但這個Cipher物件要重新初始化才能再使用
+                finished = false;
+            }
+            os.flush();
         }
         if (listener != null) {
             listener.onFinished(sum, totalBytes);
         }
+        return finished;
     }
 
     /**
-     * 加密資料。
+     * 以指定的模式加/解密資料。
      *
-     * @param inputData 傳入要加密的資料流
-     * @param outputData 傳入已加密的資料流
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param inputData 傳入輸入的資料流
+     * @param outputData 傳入輸出的資料流
      * @param listener 傳入監聽者物件
      * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
      */
-    @Override
-    public void encrypt(final InputStream inputData, final OutputStream outputData, final Crypt.CryptListener listener) throws IOException {
+    private void crypt(final int mode, final InputStream inputData, final OutputStream outputData, final Crypt.CryptListener listener) throws IOException {
         try {
-            cipher.init(Cipher.ENCRYPT_MODE, key, iv);
-            crypt(inputData, outputData, listener);
+            final CipherPool pool = cipherPool;
+            final Cipher cipher = pool.borrow(mode);
+            boolean finished = false;
+            try {
+                finished = crypt(cipher, inputData, outputData, listener);
+            } finally {
+                if (finished) {
+                    pool.release(cipher, mode);
+                } else {
+                    // 沒有正常結束的Cipher物件要重新初始化之後才能歸還
+                    pool.recycle(cipher, mode);
+                }
+            }
         } catch (final IOException ex) {
             throw ex;
         } catch (final Exception ex) {
@@ -106,6 +579,19 @@ public abstract class CipherCrpyt extends Crypt {
         }
     }
 
+    /**
+     * 加密資料。
+     *
+     * @param inputData 傳入要加密的資料流
+     * @param outputData 傳入已加密的資料流
+     * @param listener 傳入監聽者物件
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    @Override
+    public void encrypt(final InputStream inputData, final OutputStream outputData, final Crypt.CryptListener listener) throws IOException {
+        crypt(Cipher.ENCRYPT_MODE, inputData, outputData, listener);
+    }
+
     /**
      * 解密資料。
      *
@@ -116,13 +602,140 @@ public abstract class CipherCrpyt extends Crypt {
      */
     @Override
     public void decrypt(final InputStream inputData, final OutputStream outputData, final Crypt.CryptListener listener) throws IOException {
+        crypt(Cipher.DECRYPT_MODE, inputData, outputData, listener);
+    }
+
+    /**
+     * 使用已初始化的Cipher物件加/解密檔案通道，以大型緩衝區讀寫，並預先將輸出檔案設定成加/解密後的大小。兩個通道都不會被關閉。
+     *
+     * @param cipher 傳入已初始化的Cipher物件
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param input 傳入輸入的檔案通道，從目前的位置讀到檔案結尾
+     * @param output 傳入輸出的檔案通道，從目前的位置開始寫入
+     * @param listener 傳入監聽者物件
+     * @return 傳回Cipher物件是否有正常結束，可以直接再被使用
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     * @throws java.security.GeneralSecurityException 當加/解密時發生問題，會拋出這個例外
+     */
+    protected boolean crypt(final Cipher cipher, final int mode, final FileChannel input, final FileChannel output, final Crypt.CryptListener listener) throws IOException, GeneralSecurityException {
+        final long totalBytes = Math.max(input.size() - input.position(), 0);
+
+        if (listener != null) {
+            listener.onStarted(totalBytes);
+        }
+
+        final int blockSize = getBlockSize();
+        // 加密後的大小可以事先算出，解密後的大小不會超過密文，結束後再截斷多出來的部份
+        final long outputBytes = mode == Cipher.ENCRYPT_MODE ? (totalBytes / blockSize + 1) * blockSize : totalBytes;
+        final long outputStart = output.position();
+        final boolean preallocated = outputBytes > 0 && output.size() < outputStart + outputBytes;
+        if (preallocated) {
+            output.write(ByteBuffer.allocate(1), outputStart + outputBytes - 1);
+        }
+
+        final int bufferSize = (int) Math.min(FILE_BUFFER_SIZE, Math.max(totalBytes, blockSize));
+        // Cipher物件處理陣列比處理直接配置的緩衝區快，檔案通道讀寫陣列時會使用JDK快取的直接緩衝區
+        final byte[] inputArray = new byte[bufferSize];
+        final byte[] outputArray = new byte[bufferSize + 2 * blockSize];
+        final ByteBuffer buffer = ByteBuffer.wrap(inputArray);
+        final ByteBuffer outputBuffer = ByteBuffer.wrap(outputArray);
+        long sum = 0;
+        boolean finished = true;
+        int c;
+        while ((c = input.read(buffer)) >= 0) {
+            sum += c;
+            outputBuffer.position(cipher.update(inputArray, 0, buffer.position(), outputArray, 0));
+            buffer.clear();
+            write(output, outputBuffer);
+            if (listener != null) {
+                if (!listener.onRunning(sum, (sum > totalBytes) ? -1 : totalBytes)) {
+                    break;
+                }
+            }
+        }
+        try {
+            outputBuffer.position(cipher.doFinal(outputArray, 0));
+        } catch (final BadPaddingException | IllegalBlockSizeException ex) {
+            // 和CipherOutputStream一樣忽略最後一個區塊的錯誤，但這個Cipher物件要重新初始化才能再使用
+            finished = false;
+        }
+        write(output, outputBuffer);
+        if (preallocated) {
+            output.truncate(output.position());
+        }
+        if (listener != null) {
+            listener.onFinished(sum, totalBytes);
+        }
+        return finished;
+    }
+
+    /**
+     * 將緩衝區中的資料全部寫入檔案通道，並清空緩衝區。
+     *
+     * @param output 傳入輸出的檔案通道
+     * @param buffer 傳入要寫入的資料
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    private static void write(final FileChannel output, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 以指定的模式加/解密檔案通道。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @param input 傳入輸入的檔案通道
+     * @param output 傳入輸出的檔案通道
+     * @param listener 傳入監聽者物件
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    private void crypt(final int mode, final FileChannel input, final FileChannel output, final Crypt.CryptListener listener) throws IOException {
         try {
-            cipher.init(Cipher.DECRYPT_MODE, key, iv);
-            crypt(inputData, outputData, listener);
+            final CipherPool pool = cipherPool;
+            final Cipher cipher = pool.borrow(mode);
+            boolean finished = false;
+            try {
+                finished = crypt(cipher, mode, input, output, listener);
+            } finally {
+                if (finished) {
+                    pool.release(cipher, mode);
+                } else {
+                    // 沒有正常結束的Cipher物件要重新初始化之後才能歸還
+                    pool.recycle(cipher, mode);
+                }
+            }
         } catch (final IOException ex) {
             throw ex;
         } catch (final Exception ex) {
             throw new RuntimeException(ex.getMessage());
         }
     }
+
+    /**
+     * 加密檔案通道。從輸入通道目前的位置讀到檔案結尾，加密後從輸出通道目前的位置開始寫入，輸出檔案會預先設定成加密後的大小。兩個通道都不會被關閉。
+     *
+     * @param input 傳入要加密的檔案通道
+     * @param output 傳入已加密的檔案通道
+     * @param listener 傳入監聽者物件
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void encrypt(final FileChannel input, final FileChannel output, final Crypt.CryptListener listener) throws IOException {
+        crypt(Cipher.ENCRYPT_MODE, input, output, listener);
+    }
+
+    /**
+     * 解密檔案通道。從輸入通道目前的位置讀到檔案結尾，解密後從輸出通道目前的位置開始寫入。兩個通道都不會被關閉。
+     *
+     * @param input 傳入要解密的檔案通道
+     * @param output 傳入已解密的檔案通道
+     * @param listener 傳入監聽者物件
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void decrypt(final FileChannel input, final FileChannel output, final Crypt.CryptListener listener) throws IOException {
+        crypt(Cipher.DECRYPT_MODE, input, output, listener);
+    }
 }
@@ -0,0 +1,368 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.lib;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.crypto.Cipher;
+
+/**
+ * <p>
+ * 存放已初始化之Cipher物件的池子，每個CipherCrpyt物件(也就是每組密鑰和初始化向量)各自擁有一個。</p>
+ *
+ * <p>
+ * 加密和解密模式的Cipher物件分開存放，數量各自不會超過池子的最大容量。閒置超過指定時間的Cipher物件會被移除。借出和歸還都不需要上鎖，也不會產生新的物件。</p>
+ *
+ * @author Magic Len
+ */
+public class CipherPool {
+
+    // -----類別常數-----
+    /**
+     * 預設的最大容量(每種模式)。
+     */
+    public static final int DEFAULT_MAX_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    /**
+     * 預設的閒置時間(毫秒)。
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+
+    // -----物件常數-----
+    /**
+     * 使用這個池子的加/解密物件。
+     */
+    private final CipherCrpyt crypt;
+    /**
+     * 最大容量(每種模式)。
+     */
+    private final int maxSize;
+    /**
+     * 閒置時間(奈秒)。
+     */
+    private final long idleTimeout;
+    /**
+     * 加密模式的Cipher物件。
+     */
+    private final AtomicReferenceArray<Cipher> encryptCiphers;
+    /**
+     * 加密模式的Cipher物件最後被歸還的時間。
+     */
+    private final AtomicLongArray encryptLastUsed;
+    /**
+     * 解密模式的Cipher物件。
+     */
+    private final AtomicReferenceArray<Cipher> decryptCiphers;
+    /**
+     * 解密模式的Cipher物件最後被歸還的時間。
+     */
+    private final AtomicLongArray decryptLastUsed;
+    /**
+     * 命中次數。
+     */
+    private final StripedCounter hits = new StripedCounter();
+    /**
+     * 未命中次數。
+     */
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * 建立Cipher物件的次數。
+     */
+    private final AtomicLong creations = new AtomicLong();
+    /**
+     * 因閒置或是池子已滿而移除Cipher物件的次數。
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    // -----物件變數-----
+    /**
+     * 下一次檢查閒置物件的時間(奈秒)。
+     */
+    private volatile long nextSweep;
+
+    // -----建構子-----
+    /**
+     * 建構子。
+     *
+     * @param crypt 傳入使用這個池子的加/解密物件
+     * @param maxSize 傳入每種模式的最大容量
+     * @param idleTimeout 傳入閒置時間(毫秒)，小於等於0表示不移除閒置的物件
+     */
+    CipherPool(final CipherCrpyt crypt, final int maxSize, final long idleTimeout) {
+        if (maxSize <= 0) {
+            throw new RuntimeException("The max size of a cipher pool must be positive!");
+        }
+        this.crypt = crypt;
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout > 0 ? idleTimeout * 1000000L : 0;
+        encryptCiphers = new AtomicReferenceArray<>(maxSize);
+        encryptLastUsed = new AtomicLongArray(maxSize);
+        decryptCiphers = new AtomicReferenceArray<>(maxSize);
+        decryptLastUsed = new AtomicLongArray(maxSize);
+        nextSweep = System.nanoTime() + sweepInterval();
+    }
+
+    // -----物件方法-----
+    /**
+     * 借出已初始化的Cipher物件。如果池子中沒有可用的物件，會建立新的。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @return 傳回已初始化的Cipher物件
+     * @throws java.security.GeneralSecurityException 當無法建立或是初始化Cipher物件時，會拋出這個例外
+     */
+    public Cipher borrow(final int mode) throws GeneralSecurityException {
+        final AtomicReferenceArray<Cipher> ciphers = ciphers(mode);
+        final int probe = StripedCounter.probe();
+        final int start = probe % maxSize;
+        for (int i = 0; i < maxSize; ++i) {
+            final int index = (start + i) % maxSize;
+            if (ciphers.get(index) != null) {
+                final Cipher cipher = ciphers.getAndSet(index, null);
+                if (cipher != null) {
+                    hits.increment(probe);
+                    return cipher;
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return create(mode);
+    }
+
+    /**
+     * 歸還Cipher物件。只有在最後一次的doFinal成功完成之後才能歸還，否則Cipher物件的狀態會不正確。
+     *
+     * @param cipher 傳入之前借出的Cipher物件
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     */
+    public void release(final Cipher cipher, final int mode) {
+        final long now = System.nanoTime();
+        if (idleTimeout > 0 && now - nextSweep >= 0) {
+            evictIdle(now);
+        }
+        final AtomicReferenceArray<Cipher> ciphers = ciphers(mode);
+        final AtomicLongArray lastUsed = lastUsed(mode);
+        final int start = StripedCounter.probe() % maxSize;
+        for (int i = 0; i < maxSize; ++i) {
+            final int index = (start + i) % maxSize;
+            if (ciphers.get(index) == null && ciphers.compareAndSet(index, null, cipher)) {
+                // 取得位置之後才設定時間，以免覆蓋其它Cipher物件的時間
+                lastUsed.set(index, now);
+                return;
+            }
+        }
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * 歸還沒有正常結束的Cipher物件，例如資料流在讀到結尾之前就被關閉，或是doFinal拋出例外時。Cipher物件會先重新初始化；無法初始化時會被丟棄，並計入移除次數。
+     *
+     * @param cipher 傳入之前借出的Cipher物件
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     */
+    public void recycle(final Cipher cipher, final int mode) {
+        try {
+            cipher.init(mode, crypt.key, crypt.iv);
+        } catch (final GeneralSecurityException ex) {
+            evictions.incrementAndGet();
+            return;
+        }
+        release(cipher, mode);
+    }
+
+    /**
+     * 預先建立並初始化Cipher物件，避免第一次使用時的延遲。
+     *
+     * @param count 傳入每種模式要準備的數量，不會超過最大容量
+     */
+    public void warmUp(final int count) {
+        final int n = Math.min(count, maxSize);
+        try {
+            for (int i = 0; i < n; ++i) {
+                final Cipher encryptCipher = create(Cipher.ENCRYPT_MODE);
+                final Cipher decryptCipher = create(Cipher.DECRYPT_MODE);
+                decryptCipher.doFinal(encryptCipher.doFinal());
+                release(encryptCipher, Cipher.ENCRYPT_MODE);
+                release(decryptCipher, Cipher.DECRYPT_MODE);
+            }
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 移除所有閒置超過指定時間的Cipher物件。
+     */
+    public void evictIdle() {
+        if (idleTimeout > 0) {
+            evictIdle(System.nanoTime());
+        }
+    }
+
+    /**
+     * 移除所有閒置超過指定時間的Cipher物件。
+     *
+     * @param now 傳入目前的時間(奈秒)
+     */
+    private void evictIdle(final long now) {
+        nextSweep = now + sweepInterval();
+        evictIdle(encryptCiphers, encryptLastUsed, now);
+        evictIdle(decryptCiphers, decryptLastUsed, now);
+    }
+
+    /**
+     * 移除所有閒置超過指定時間的Cipher物件。
+     *
+     * @param ciphers 傳入存放Cipher物件的陣列
+     * @param lastUsed 傳入Cipher物件最後被歸還的時間
+     * @param now 傳入目前的時間(奈秒)
+     */
+    private void evictIdle(final AtomicReferenceArray<Cipher> ciphers, final AtomicLongArray lastUsed, final long now) {
+        for (int i = 0; i < maxSize; ++i) {
+            final Cipher cipher = ciphers.get(i);
+            if (cipher != null && now - lastUsed.get(i) >= idleTimeout && ciphers.compareAndSet(i, cipher, null)) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 清空池子。
+     */
+    public void clear() {
+        for (int i = 0; i < maxSize; ++i) {
+            encryptCiphers.set(i, null);
+            decryptCiphers.set(i, null);
+        }
+    }
+
+    /**
+     * 建立並初始化新的Cipher物件。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @return 傳回已初始化的Cipher物件
+     * @throws java.security.GeneralSecurityException 當無法建立或是初始化Cipher物件時，會拋出這個例外
+     */
+    private Cipher create(final int mode) throws GeneralSecurityException {
+        final Cipher cipher = crypt.createCipher();
+        cipher.init(mode, crypt.key, crypt.iv);
+        creations.incrementAndGet();
+        return cipher;
+    }
+
+    /**
+     * 取得檢查閒置物件的間隔時間。
+     *
+     * @return 傳回間隔時間(奈秒)
+     */
+    private long sweepInterval() {
+        return Math.max(idleTimeout / 4, 1000000L);
+    }
+
+    /**
+     * 取得存放指定模式之Cipher物件的陣列。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @return 傳回陣列
+     */
+    private AtomicReferenceArray<Cipher> ciphers(final int mode) {
+        return mode == Cipher.ENCRYPT_MODE ? encryptCiphers : decryptCiphers;
+    }
+
+    /**
+     * 取得存放指定模式之Cipher物件最後被歸還時間的陣列。
+     *
+     * @param mode 傳入Cipher.ENCRYPT_MODE或是Cipher.DECRYPT_MODE
+     * @return 傳回陣列
+     */
+    private AtomicLongArray lastUsed(final int mode) {
+        return mode == Cipher.ENCRYPT_MODE ? encryptLastUsed : decryptLastUsed;
+    }
+
+    /**
+     * 取得每種模式的最大容量。
+     *
+     * @return 傳回最大容量
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 取得閒置時間。
+     *
+     * @return 傳回閒置時間(毫秒)，0表示不移除閒置的物件
+     */
+    public long getIdleTimeout() {
+        return idleTimeout / 1000000L;
+    }
+
+    /**
+     * 取得目前池子中閒置的Cipher物件數量。
+     *
+     * @return 傳回加密和解密模式之Cipher物件的總數
+     */
+    public int getIdleCount() {
+        int count = 0;
+        for (int i = 0; i < maxSize; ++i) {
+            if (encryptCiphers.get(i) != null) {
+                ++count;
+            }
+            if (decryptCiphers.get(i) != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 取得命中次數，也就是直接從池子中借出Cipher物件的次數。
+     *
+     * @return 傳回命中次數
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 取得未命中次數，也就是池子中沒有可用的Cipher物件的次數。
+     *
+     * @return 傳回未命中次數
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 取得建立Cipher物件的次數，包含預先建立的物件。
+     *
+     * @return 傳回建立次數
+     */
+    public long getCreations() {
+        return creations.get();
+    }
+
+    /**
+     * 取得因閒置或是池子已滿而移除Cipher物件的次數。
+     *
+     * @return 傳回移除次數
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -22,6 +22,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * 加/解密抽象類別，可監聽加解密過程。
@@ -118,6 +119,49 @@ public abstract class Crypt {
         }
     }
 
+    /**
+     * 加密緩衝區中從position到limit之間的資料，並將加密後的資料從dst的position開始寫入。完成後src的position會移到limit，dst的position會移到輸出資料的後面。
+     *
+     * @param src 傳入要加密的資料
+     * @param dst 傳入輸出的緩衝區
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    public int encrypt(final ByteBuffer src, final ByteBuffer dst) {
+        return crypt(true, src, dst);
+    }
+
+    /**
+     * 解密緩衝區中從position到limit之間的資料，並將解密後的資料從dst的position開始寫入。完成後src的position會移到limit，dst的position會移到輸出資料的後面。
+     *
+     * @param src 傳入要解密的資料
+     * @param dst 傳入輸出的緩衝區
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    public int decrypt(final ByteBuffer src, final ByteBuffer dst) {
+        return crypt(false, src, dst);
+    }
+
+    /**
+     * 先將緩衝區中的資料複製成陣列再加/解密。如果輸出緩衝區的空間不夠，兩個緩衝區的position都不會改變。
+     *
+     * @param encrypt 傳入是否要加密
+     * @param src 傳入輸入的資料
+     * @param dst 傳入輸出的緩衝區
+     * @return 傳回寫入輸出緩衝區的資料長度
+     */
+    private int crypt(final boolean encrypt, final ByteBuffer src, final ByteBuffer dst) {
+        final int position = src.position();
+        final byte[] data = new byte[src.remaining()];
+        src.get(data);
+        final byte[] result = encrypt ? encrypt(data, null) : decrypt(data, null);
+        if (dst.remaining() < result.length) {
+            src.position(position);
+            throw new RuntimeException("The output buffer is too small.");
+        }
+        dst.put(result);
+        return result.length;
+    }
+
     /**
      * 加密資料。
      *
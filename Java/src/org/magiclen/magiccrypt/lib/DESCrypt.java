@@ -17,6 +17,7 @@
  */
 package org.magiclen.magiccrypt.lib;
 
+import java.security.GeneralSecurityException;
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -28,6 +29,12 @@ import javax.crypto.spec.SecretKeySpec;
  */
 public class DESCrypt extends CipherCrpyt {
 
+    // -----類別變數-----
+    /**
+     * 是否已經確認過可以建立DES的Cipher物件。確認之後，建構子就不必每次都向提供者查詢演算法。
+     */
+    private static volatile boolean cipherAvailable;
+
     // -----建構子-----
     /**
      * 建構子。
@@ -53,18 +60,25 @@ public class DESCrypt extends CipherCrpyt {
         this.key = new SecretKeySpec(key, "DES");
         this.iv = new IvParameterSpec(iv);
 
-        init();
+        if (!cipherAvailable || getClass() != DESCrypt.class) {
+            try {
+                createCipher();
+            } catch (final Exception ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+            cipherAvailable = true;
+        }
     }
 
     // -----物件方法-----
     /**
-     * 初始化。
+     * 建立新的Cipher物件。
+     *
+     * @return 傳回尚未初始化的Cipher物件
+     * @throws java.security.GeneralSecurityException 當找不到演算法或是填充方式時，會拋出這個例外
      */
-    private void init() {
-        try {
-            cipher = Cipher.getInstance("DES/CBC/PKCS5Padding");
-        } catch (final Exception ex) {
-            throw new RuntimeException(ex.getMessage());
-        }
+    @Override
+    protected Cipher createCipher() throws GeneralSecurityException {
+        return Cipher.getInstance("DES/CBC/PKCS5Padding");
     }
 }
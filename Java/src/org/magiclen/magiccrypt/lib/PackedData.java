@@ -0,0 +1,165 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.lib;
+
+/**
+ * <p>
+ * 以欄位方式存放的多筆資料。所有資料依序連續存放在同一個陣列中，另外用一個偏移量陣列記錄每筆資料的位置。</p>
+ *
+ * <p>
+ * 第i筆資料位於data[offsets[i]]到data[offsets[i + 1]]之間(不包含)，因此偏移量陣列的長度為資料筆數加1。用來批次加/解密大量資料時，不需要為每筆資料產生一個物件。</p>
+ *
+ * @author Magic Len
+ */
+public final class PackedData {
+
+    // -----物件常數-----
+    /**
+     * 存放所有資料的陣列。
+     */
+    private final byte[] data;
+    /**
+     * 每筆資料的起始位置，最後一個元素為最後一筆資料的結束位置。
+     */
+    private final int[] offsets;
+
+    // -----建構子-----
+    /**
+     * 建構子。陣列不會被複製。
+     *
+     * @param data 傳入存放所有資料的陣列
+     * @param offsets 傳入每筆資料的起始位置，最後一個元素為最後一筆資料的結束位置，必須是遞增的
+     */
+    public PackedData(final byte[] data, final int[] offsets) {
+        if (data == null || offsets == null || offsets.length == 0) {
+            throw new RuntimeException("Need data and offsets to construct a PackedData object!");
+        }
+        final int size = offsets.length - 1;
+        if (offsets[0] < 0 || offsets[size] > data.length) {
+            throw new RuntimeException("The offsets are out of the range of the data!");
+        }
+        for (int i = 0; i < size; ++i) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new RuntimeException("The offsets must be in ascending order!");
+            }
+        }
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    // -----類別方法-----
+    /**
+     * 將多筆資料複製到同一個陣列中。
+     *
+     * @param items 傳入多筆資料
+     * @return 傳回PackedData物件
+     */
+    public static PackedData pack(final byte[]... items) {
+        final int size = items.length;
+        final int[] offsets = new int[size + 1];
+        long total = 0;
+        for (int i = 0; i < size; ++i) {
+            offsets[i] = (int) total;
+            total += items[i].length;
+            if (total > Integer.MAX_VALUE) {
+                throw new RuntimeException("The total length of the data is too long.");
+            }
+        }
+        offsets[size] = (int) total;
+        final byte[] data = new byte[(int) total];
+        for (int i = 0; i < size; ++i) {
+            System.arraycopy(items[i], 0, data, offsets[i], items[i].length);
+        }
+        return new PackedData(data, offsets);
+    }
+
+    // -----物件方法-----
+    /**
+     * 取得資料筆數。
+     *
+     * @return 傳回資料筆數
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * 取得第index筆資料的起始位置。
+     *
+     * @param index 傳入資料的索引
+     * @return 傳回資料在陣列中的起始位置
+     */
+    public int getOffset(final int index) {
+        return offsets[index];
+    }
+
+    /**
+     * 取得第index筆資料的長度。
+     *
+     * @param index 傳入資料的索引
+     * @return 傳回資料的長度
+     */
+    public int getLength(final int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * 複製出第index筆資料。
+     *
+     * @param index 傳入資料的索引
+     * @return 傳回新的陣列
+     */
+    public byte[] get(final int index) {
+        final int offset = offsets[index];
+        final byte[] item = new byte[offsets[index + 1] - offset];
+        System.arraycopy(data, offset, item, 0, item.length);
+        return item;
+    }
+
+    /**
+     * 將所有資料複製成各自獨立的陣列。
+     *
+     * @return 傳回多筆資料
+     */
+    public byte[][] unpack() {
+        final int size = size();
+        final byte[][] items = new byte[size][];
+        for (int i = 0; i < size; ++i) {
+            items[i] = get(i);
+        }
+        return items;
+    }
+
+    /**
+     * 取得存放所有資料的陣列。陣列中可能會有不屬於任何一筆資料的空間。
+     *
+     * @return 傳回陣列，不是複本
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * 取得每筆資料的起始位置。
+     *
+     * @return 傳回偏移量陣列，不是複本
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+}
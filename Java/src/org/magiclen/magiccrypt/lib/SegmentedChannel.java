@@ -0,0 +1,323 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.lib;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * <p>
+ * 可以隨機讀取的分段加密資料通道。position、size和read都以明文為單位，讀取時只會解密涵蓋所要求之範圍的區塊。</p>
+ *
+ * <p>
+ * 每個區段是以CBC模式加密的，因此任何一個區塊都可以用前一個區塊的密文(或是區段的初始化向量)當作初始化向量單獨解密。這個通道是唯讀的，所有方法都是同步的，同一時間只會處理一個讀取動作。</p>
+ *
+ * @author Magic Len
+ * @see SegmentedCrypt
+ */
+public class SegmentedChannel implements SeekableByteChannel {
+
+    // -----類別常數-----
+    /**
+     * 每次最多解密的資料量(位元組)。
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // -----物件常數-----
+    /**
+     * 提供密鑰和初始化向量的加/解密物件。
+     */
+    private final CipherCrpyt crypt;
+    /**
+     * 分段加密的資料來源。
+     */
+    private final SeekableByteChannel source;
+    /**
+     * 分段加密的資料在資料來源中的起始位置。
+     */
+    private final long base;
+    /**
+     * 區段大小(位元組)。
+     */
+    private final int segmentSize;
+    /**
+     * 完整區段的密文長度(位元組)。
+     */
+    private final int encryptedSegmentSize;
+    /**
+     * 明文的長度(位元組)。
+     */
+    private final long size;
+    /**
+     * 以CBC模式解密，不處理填充的Cipher物件。
+     */
+    private final Cipher cipher;
+    /**
+     * 密文的暫存陣列，前面多保留一個區塊給初始化向量。
+     */
+    private final byte[] encrypted;
+    /**
+     * 明文的暫存陣列。
+     */
+    private final byte[] decrypted;
+
+    // -----物件變數-----
+    /**
+     * 目前的位置(明文)。
+     */
+    private long position;
+    /**
+     * 通道是否已經關閉。
+     */
+    private boolean closed;
+
+    // -----建構子-----
+    /**
+     * 建構子。會讀取標頭並檢查結束區塊，再解密最後一個區塊來取得明文的長度。
+     *
+     * @param crypt 傳入提供密鑰和初始化向量的加/解密物件
+     * @param source 傳入分段加密的資料來源，從目前的位置開始讀取
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    SegmentedChannel(final CipherCrpyt crypt, final SeekableByteChannel source) throws IOException {
+        this.crypt = crypt;
+        this.source = source;
+        base = source.position();
+        final int blockSize = crypt.getBlockSize();
+
+        final ByteBuffer header = ByteBuffer.allocate(SegmentedCrypt.HEADER_SIZE);
+        read(header, base);
+        header.flip();
+        segmentSize = SegmentedCrypt.readHeader(header, blockSize);
+        encryptedSegmentSize = segmentSize + blockSize;
+
+        try {
+            cipher = Cipher.getInstance(crypt.key.getAlgorithm() + "/CBC/NoPadding");
+        } catch (final GeneralSecurityException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+        encrypted = new byte[CHUNK_SIZE + blockSize];
+        decrypted = new byte[CHUNK_SIZE];
+
+        final long encryptedLength = source.size() - base - SegmentedCrypt.HEADER_SIZE - blockSize;
+        final long count = SegmentedCrypt.checkEncryptedLength(encryptedLength, encryptedSegmentSize, blockSize);
+        // 結束區塊和區段數量不符時，表示資料被截斷或是被接上其它資料
+        read(ByteBuffer.wrap(encrypted, 0, blockSize), base + SegmentedCrypt.HEADER_SIZE + encryptedLength);
+        try {
+            SegmentedCrypt.checkEndBlock(crypt, count, encrypted, 0);
+        } catch (final GeneralSecurityException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+        if (count == 0) {
+            size = 0;
+            return;
+        }
+        final long lastEncryptedLength = encryptedLength - (count - 1) * encryptedSegmentSize;
+        // 最後一個區塊的最後一個位元組就是填充的長度
+        decryptBlocks(count - 1, lastEncryptedLength / blockSize - 1, 1);
+        final int padding = decrypted[blockSize - 1] & 0xFF;
+        if (padding < 1 || padding > blockSize) {
+            throw new RuntimeException("The padding of the segmented data is incorrect!");
+        }
+        size = (count - 1) * segmentSize + lastEncryptedLength - padding;
+    }
+
+    // -----物件方法-----
+    /**
+     * 從資料來源的指定位置開始讀取資料，直到緩衝區已滿。
+     *
+     * @param buffer 傳入緩衝區
+     * @param position 傳入資料來源中的位置
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，或是資料不完整時，會拋出這個例外
+     */
+    private void read(final ByteBuffer buffer, final long position) throws IOException {
+        source.position(position);
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * 解密指定區段中連續的數個區塊，明文會放在decrypted陣列的開頭。
+     *
+     * @param segment 傳入區段的索引
+     * @param block 傳入第一個區塊在區段中的索引
+     * @param blocks 傳入區塊數量
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    private void decryptBlocks(final long segment, final long block, final int blocks) throws IOException {
+        final int blockSize = crypt.getBlockSize();
+        final long segmentStart = base + SegmentedCrypt.HEADER_SIZE + segment * encryptedSegmentSize;
+        final int length = blocks * blockSize;
+        try {
+            final byte[] iv;
+            if (block > 0) {
+                // 前一個區塊的密文就是這個區塊的初始化向量
+                read(ByteBuffer.wrap(encrypted, 0, length + blockSize), segmentStart + (block - 1) * blockSize);
+                iv = new byte[blockSize];
+                System.arraycopy(encrypted, 0, iv, 0, blockSize);
+            } else {
+                read(ByteBuffer.wrap(encrypted, blockSize, length), segmentStart);
+                iv = SegmentedCrypt.segmentIv(crypt, segment);
+            }
+            cipher.init(Cipher.DECRYPT_MODE, crypt.key, new IvParameterSpec(iv));
+            cipher.doFinal(encrypted, blockSize, length, decrypted, 0);
+        } catch (final GeneralSecurityException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 從目前的位置開始讀取並解密資料，只會解密涵蓋所要求之範圍的區塊。
+     *
+     * @param dst 傳入輸出的緩衝區
+     * @return 傳回讀取的資料長度，如果已經到了結尾，傳回-1
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    @Override
+    public synchronized int read(final ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        final int blockSize = crypt.getBlockSize();
+        final long end = Math.min(size, position + dst.remaining());
+        final long start = position;
+        while (position < end) {
+            final long segment = position / segmentSize;
+            final long offset = position - segment * segmentSize;
+            final long block = offset / blockSize;
+            final long segmentEnd = Math.min(end, (segment + 1) * segmentSize) - segment * segmentSize;
+            final int blocks = (int) Math.min((segmentEnd - block * blockSize + blockSize - 1) / blockSize, CHUNK_SIZE / blockSize);
+            decryptBlocks(segment, block, blocks);
+            final int skip = (int) (offset - block * blockSize);
+            final int length = (int) Math.min(blocks * blockSize - skip, segmentEnd - offset);
+            dst.put(decrypted, skip, length);
+            position += length;
+        }
+        return (int) (position - start);
+    }
+
+    /**
+     * 這個通道是唯讀的，無法寫入。
+     *
+     * @param src 傳入要寫入的資料
+     * @return 不會傳回
+     * @throws java.nio.channels.NonWritableChannelException 一定會拋出這個例外
+     */
+    @Override
+    public int write(final ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * 取得目前的位置。
+     *
+     * @return 傳回目前在明文中的位置
+     * @throws java.io.IOException 當通道已經關閉時，會拋出這個例外
+     */
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    /**
+     * 設定目前的位置。可以超過明文的長度，此時讀取會傳回-1。
+     *
+     * @param newPosition 傳入在明文中的位置
+     * @return 傳回這個通道
+     * @throws java.io.IOException 當通道已經關閉時，會拋出這個例外
+     */
+    @Override
+    public synchronized SegmentedChannel position(final long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException();
+        }
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * 取得明文的長度。
+     *
+     * @return 傳回明文的長度
+     * @throws java.io.IOException 當通道已經關閉時，會拋出這個例外
+     */
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    /**
+     * 這個通道是唯讀的，無法截斷。
+     *
+     * @param size 傳入新的長度
+     * @return 不會傳回
+     * @throws java.nio.channels.NonWritableChannelException 一定會拋出這個例外
+     */
+    @Override
+    public SegmentedChannel truncate(final long size) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * 檢查通道是否已經關閉。
+     *
+     * @throws java.nio.channels.ClosedChannelException 當通道已經關閉時，會拋出這個例外
+     */
+    private void ensureOpen() throws ClosedChannelException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * 取得通道是否還沒有關閉。
+     *
+     * @return 傳回通道是否還沒有關閉
+     */
+    @Override
+    public synchronized boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * 關閉通道，資料來源也會一起被關閉。
+     *
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,762 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.lib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * <p>
+ * 分段加/解密。將資料切成固定大小的區段，每個區段使用各自的初始化向量獨立進行CBC加密，因此可以用多個執行緒平行處理，並直接寫到最後的位置。</p>
+ *
+ * <p>
+ * 格式為8位元組的標頭(4位元組的識別碼和4位元組的區段大小，皆為big-endian)，接著依序是每個區段的密文，最後是一個區塊的結束區塊。每個區段的明文長度為區段大小(只有最後一個區段可以較短)，以PKCS5填充，因此除了最後一個區段以外，每個區段的密文長度都是區段大小加上區塊大小。第i個區段的初始化向量是將原本的初始化向量和i做XOR之後，再用密鑰以ECB模式加密的結果。</p>
+ *
+ * <p>
+ * 結束區塊的產生方式和初始化向量相同，只是將i換成最高位元設為1的區段數量。解密前會先檢查結束區塊，因此資料在區段的邊界被截斷，或是後面被接上其它資料時，都會拋出例外，而不會只解密出一部份的資料。</p>
+ *
+ * <p>
+ * 這個格式和CipherCrpyt的加密結果不相容，必須使用SegmentedCrypt解密。</p>
+ *
+ * @author Magic Len
+ */
+public class SegmentedCrypt {
+
+    // -----類別介面-----
+    /**
+     * 處理單一區段的工作。
+     */
+    private static interface SegmentTask {
+
+        /**
+         * 處理區段。
+         *
+         * @param index 傳入區段的索引
+         * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+         * @throws java.security.GeneralSecurityException 當加/解密時發生問題，會拋出這個例外
+         */
+        public void run(final long index) throws IOException, GeneralSecurityException;
+    }
+
+    // -----類別類別-----
+    /**
+     * 將區段的範圍不斷對半切割，交給ForkJoinPool平行處理。
+     */
+    private static final class SegmentAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 處理單一區段的工作。
+         */
+        private final SegmentTask task;
+        /**
+         * 區段的範圍，不包含to。
+         */
+        private final long from, to;
+
+        SegmentAction(final SegmentTask task, final long from, final long to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final long middle = (from + to) >>> 1;
+                invokeAll(new SegmentAction(task, from, middle), new SegmentAction(task, middle, to));
+            } else {
+                try {
+                    task.run(from);
+                } catch (final Exception ex) {
+                    throw new RuntimeException(ex.getMessage());
+                }
+            }
+        }
+    }
+
+    // -----類別常數-----
+    /**
+     * 標頭的識別碼，也就是「MCSG」的ASCII編碼。
+     */
+    public static final int MAGIC = 0x4D435347;
+    /**
+     * 標頭大小(位元組)。
+     */
+    public static final int HEADER_SIZE = 8;
+    /**
+     * 預設的區段大小(位元組)。
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+    /**
+     * 處理資料流時，一次讀進記憶體的最大資料量(位元組)。
+     */
+    private static final int MAX_BATCH_SIZE = 1 << 26;
+    /**
+     * 產生結束區塊時，和區段數量一起做XOR的旗標，因此不會和任何區段的初始化向量相同。
+     */
+    private static final long END_FLAG = Long.MIN_VALUE;
+
+    // -----物件常數-----
+    /**
+     * 提供密鑰和初始化向量的加/解密物件。
+     */
+    private final CipherCrpyt crypt;
+    /**
+     * 加密時使用的區段大小(位元組)。
+     */
+    private final int segmentSize;
+    /**
+     * 平行處理區段的ForkJoinPool。
+     */
+    private final ForkJoinPool pool;
+
+    // -----建構子-----
+    /**
+     * 建構子，使用預設的區段大小和ForkJoinPool。
+     *
+     * @param crypt 傳入提供密鑰和初始化向量的加/解密物件
+     */
+    public SegmentedCrypt(final CipherCrpyt crypt) {
+        this(crypt, DEFAULT_SEGMENT_SIZE, null);
+    }
+
+    /**
+     * 建構子，使用預設的ForkJoinPool。
+     *
+     * @param crypt 傳入提供密鑰和初始化向量的加/解密物件
+     * @param segmentSize 傳入加密時使用的區段大小，必須是區塊大小的倍數
+     */
+    public SegmentedCrypt(final CipherCrpyt crypt, final int segmentSize) {
+        this(crypt, segmentSize, null);
+    }
+
+    /**
+     * 建構子。
+     *
+     * @param crypt 傳入提供密鑰和初始化向量的加/解密物件
+     * @param segmentSize 傳入加密時使用的區段大小，必須是區塊大小的倍數
+     * @param pool 傳入平行處理區段的ForkJoinPool，如果是null就使用預設的ForkJoinPool
+     */
+    public SegmentedCrypt(final CipherCrpyt crypt, final int segmentSize, final ForkJoinPool pool) {
+        if (crypt == null) {
+            throw new RuntimeException("Need a CipherCrpyt object to construct a SegmentedCrypt object!");
+        }
+        checkSegmentSize(segmentSize, crypt.getBlockSize());
+        this.crypt = crypt;
+        this.segmentSize = segmentSize;
+        this.pool = pool;
+    }
+
+    // -----類別方法-----
+    /**
+     * 檢查區段大小是否正確。
+     *
+     * @param segmentSize 傳入區段大小
+     * @param blockSize 傳入區塊大小
+     */
+    private static void checkSegmentSize(final int segmentSize, final int blockSize) {
+        if (segmentSize <= 0 || segmentSize % blockSize != 0 || segmentSize > Integer.MAX_VALUE - 2 * blockSize) {
+            throw new RuntimeException("The segment size must be a positive multiple of the block size!");
+        }
+    }
+
+    /**
+     * 產生第index個區段的初始化向量，也就是將原本的初始化向量和index做XOR之後，再用密鑰以ECB模式加密的結果。以全為0的初始化向量進行CBC加密時，第一個區塊的密文就和ECB模式的結果相同，因此可以直接使用池子中的Cipher物件。
+     *
+     * @param crypt 傳入提供密鑰和初始化向量的加/解密物件
+     * @param cipher 傳入從池子借出的加密模式Cipher物件，會被重新初始化
+     * @param index 傳入區段的索引
+     * @return 傳回初始化向量
+     * @throws java.security.GeneralSecurityException 當加密時發生問題，會拋出這個例外
+     */
+    private static byte[] segmentIv(final CipherCrpyt crypt, final Cipher cipher, final long index) throws GeneralSecurityException {
+        final byte[] block = crypt.iv.getIV();
+        final int blockSize = block.length;
+        for (int i = 0, p = blockSize - 1; i < 8 && p >= 0; ++i, --p) {
+            block[p] ^= (byte) (index >>> (i * 8));
+        }
+        cipher.init(Cipher.ENCRYPT_MODE, crypt.key, new IvParameterSpec(new byte[blockSize]));
+        return Arrays.copyOf(cipher.doFinal(block), blockSize);
+    }
+
+    /**
+     * 產生第index個區段的初始化向量。會從池子借出一個加密模式的Cipher物件，用完再歸還。
+     *
+     * @param crypt 傳入提供密鑰和初始化向量的加/解密物件
+     * @param index 傳入區段的索引
+     * @return 傳回初始化向量
+     * @throws java.security.GeneralSecurityException 當加密時發生問題，會拋出這個例外
+     */
+    static byte[] segmentIv(final CipherCrpyt crypt, final long index) throws GeneralSecurityException {
+        final CipherPool cipherPool = crypt.getCipherPool();
+        final Cipher cipher = cipherPool.borrow(Cipher.ENCRYPT_MODE);
+        try {
+            return segmentIv(crypt, cipher, index);
+        } finally {
+            cipherPool.recycle(cipher, Cipher.ENCRYPT_MODE);
+        }
+    }
+
+    /**
+     * 產生結束區塊。
+     *
+     * @param crypt 傳入提供密鑰和初始化向量的加/解密物件
+     * @param count 傳入區段數量
+     * @return 傳回結束區塊
+     * @throws java.security.GeneralSecurityException 當加密時發生問題，會拋出這個例外
+     */
+    static byte[] endBlock(final CipherCrpyt crypt, final long count) throws GeneralSecurityException {
+        return segmentIv(crypt, END_FLAG | count);
+    }
+
+    /**
+     * 檢查結束區塊是否和區段數量相符。
+     *
+     * @param crypt 傳入提供密鑰和初始化向量的加/解密物件
+     * @param count 傳入從資料長度算出的區段數量
+     * @param data 傳入存放結束區塊的陣列
+     * @param offset 傳入結束區塊的起始位置
+     * @throws java.security.GeneralSecurityException 當加密時發生問題，會拋出這個例外
+     */
+    static void checkEndBlock(final CipherCrpyt crypt, final long count, final byte[] data, final int offset) throws GeneralSecurityException {
+        final byte[] expected = endBlock(crypt, count);
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(data, offset, offset + expected.length))) {
+            throw new RuntimeException("The segmented data is truncated or corrupted!");
+        }
+    }
+
+    /**
+     * 讀取並檢查標頭。
+     *
+     * @param header 傳入標頭
+     * @param blockSize 傳入區塊大小
+     * @return 傳回區段大小
+     */
+    static int readHeader(final ByteBuffer header, final int blockSize) {
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new RuntimeException("The data is not in the segmented format!");
+        }
+        final int size = header.getInt();
+        checkSegmentSize(size, blockSize);
+        return size;
+    }
+
+    /**
+     * 從檔案通道的指定位置開始讀取資料，直到緩衝區已滿或是檔案結束。
+     *
+     * @param channel 傳入檔案通道
+     * @param buffer 傳入緩衝區
+     * @param position 傳入檔案中的位置
+     * @return 傳回讀取的資料長度
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    private static int read(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        final int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) {
+                break;
+            }
+        }
+        return buffer.position() - start;
+    }
+
+    /**
+     * 將緩衝區中的資料全部寫入檔案通道的指定位置。
+     *
+     * @param channel 傳入檔案通道
+     * @param buffer 傳入緩衝區
+     * @param position 傳入檔案中的位置
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    private static void write(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        final int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position() - start);
+        }
+    }
+
+    /**
+     * 從資料流讀取資料，直到陣列已滿或是資料流結束。
+     *
+     * @param inputData 傳入資料流
+     * @param buffer 傳入陣列
+     * @param offset 傳入開始存放的位置
+     * @return 傳回讀取的資料長度
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    private static int read(final InputStream inputData, final byte[] buffer, final int offset) throws IOException {
+        int length = offset;
+        int c;
+        while (length < buffer.length && (c = inputData.read(buffer, length, buffer.length - length)) >= 0) {
+            length += c;
+        }
+        return length - offset;
+    }
+
+    /**
+     * 檢查密文的長度，並計算區段數量。
+     *
+     * @param length 傳入密文的長度，不包含標頭和結束區塊
+     * @param encryptedSegmentSize 傳入完整區段的密文長度
+     * @param blockSize 傳入區塊大小
+     * @return 傳回區段數量
+     */
+    static long checkEncryptedLength(final long length, final int encryptedSegmentSize, final int blockSize) {
+        if (length < 0) {
+            throw new RuntimeException("The segmented data is truncated or corrupted!");
+        }
+        final long count = segmentCount(length, encryptedSegmentSize);
+        if (count > 0 && (length - (count - 1) * encryptedSegmentSize) % blockSize != 0) {
+            throw new RuntimeException("The length of the segmented data is incorrect!");
+        }
+        return count;
+    }
+
+    // -----物件方法-----
+    /**
+     * 取得加密時使用的區段大小。
+     *
+     * @return 傳回區段大小(位元組)
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * 計算資料分段加密後的長度，包含標頭和結束區塊。
+     *
+     * @param length 傳入資料的長度
+     * @return 傳回加密後的長度
+     */
+    public long getOutputSize(final long length) {
+        return HEADER_SIZE + encryptedLength(length, segmentSize) + crypt.getBlockSize();
+    }
+
+    /**
+     * 計算資料分段加密後的長度，不包含標頭和結束區塊。
+     *
+     * @param length 傳入資料的長度
+     * @param segmentSize 傳入區段大小
+     * @return 傳回加密後的長度
+     */
+    private long encryptedLength(final long length, final int segmentSize) {
+        final int blockSize = crypt.getBlockSize();
+        final long count = segmentCount(length, segmentSize);
+        if (count == 0) {
+            return 0;
+        }
+        final long last = length - (count - 1) * segmentSize;
+        return (count - 1) * (segmentSize + blockSize) + (last / blockSize + 1) * blockSize;
+    }
+
+    /**
+     * 計算區段數量。
+     *
+     * @param length 傳入資料的長度
+     * @param size 傳入每個區段的大小
+     * @return 傳回區段數量
+     */
+    private static long segmentCount(final long length, final int size) {
+        return (length + size - 1) / size;
+    }
+
+    /**
+     * 將區段平行處理。
+     *
+     * @param from 傳入第一個區段的索引
+     * @param to 傳入最後一個區段的下一個索引
+     * @param task 傳入處理單一區段的工作
+     */
+    private void forEachSegment(final long from, final long to, final SegmentTask task) {
+        if (from >= to) {
+            return;
+        }
+        (pool != null ? pool : Batches.getDefaultPool()).invoke(new SegmentAction(task, from, to));
+    }
+
+    /**
+     * 產生標頭。
+     *
+     * @return 傳回標頭
+     */
+    private byte[] header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(segmentSize).array();
+    }
+
+    /**
+     * 加密一個區段。Cipher物件會從池子借出，用完再歸還。輸入和輸出可以是同一個陣列。
+     *
+     * @param index 傳入區段的索引
+     * @param input 傳入要加密的資料
+     * @param inputOffset 傳入資料的起始位置
+     * @param inputLength 傳入資料的長度
+     * @param output 傳入輸出的陣列
+     * @param outputOffset 傳入輸出陣列的起始位置
+     * @return 傳回密文的長度
+     * @throws java.security.GeneralSecurityException 當加密時發生問題，會拋出這個例外
+     */
+    private int encryptSegment(final long index, final byte[] input, final int inputOffset, final int inputLength, final byte[] output, final int outputOffset) throws GeneralSecurityException {
+        final CipherPool cipherPool = crypt.getCipherPool();
+        final Cipher cipher = cipherPool.borrow(Cipher.ENCRYPT_MODE);
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, crypt.key, new IvParameterSpec(segmentIv(crypt, cipher, index)));
+            return cipher.doFinal(input, inputOffset, inputLength, output, outputOffset);
+        } finally {
+            cipherPool.recycle(cipher, Cipher.ENCRYPT_MODE);
+        }
+    }
+
+    /**
+     * 解密一個區段。最後一個區塊會先解密到暫存陣列中，因此不會寫到明文後面的位置，可以直接寫入和其它區段共用的陣列。Cipher物件會從池子借出，用完再歸還。輸入和輸出可以是同一個陣列。
+     *
+     * @param index 傳入區段的索引
+     * @param input 傳入要解密的資料
+     * @param inputOffset 傳入資料的起始位置
+     * @param inputLength 傳入資料的長度
+     * @param output 傳入輸出的陣列
+     * @param outputOffset 傳入輸出陣列的起始位置
+     * @return 傳回明文的長度
+     * @throws java.security.GeneralSecurityException 當解密時發生問題，會拋出這個例外
+     */
+    private int decryptSegment(final long index, final byte[] input, final int inputOffset, final int inputLength, final byte[] output, final int outputOffset) throws GeneralSecurityException {
+        final int blockSize = crypt.getBlockSize();
+        final byte[] iv = segmentIv(crypt, index);
+        final CipherPool cipherPool = crypt.getCipherPool();
+        final Cipher cipher = cipherPool.borrow(Cipher.DECRYPT_MODE);
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, crypt.key, new IvParameterSpec(iv));
+            final int bodyLength = inputLength - blockSize;
+            final int length = cipher.update(input, inputOffset, bodyLength, output, outputOffset);
+            final byte[] tail = new byte[2 * blockSize];
+            final int tailLength = cipher.doFinal(input, inputOffset + bodyLength, blockSize, tail, 0);
+            System.arraycopy(tail, 0, output, outputOffset + length, tailLength);
+            return length + tailLength;
+        } finally {
+            cipherPool.recycle(cipher, Cipher.DECRYPT_MODE);
+        }
+    }
+
+    /**
+     * 分段加密資料。
+     *
+     * @param data 傳入要加密的資料
+     * @return 傳回加密後的資料
+     */
+    public byte[] encrypt(final byte[] data) {
+        final int length = data.length;
+        final long outputLength = getOutputSize(length);
+        if (outputLength > Integer.MAX_VALUE) {
+            throw new RuntimeException("The encrypted data is too long.");
+        }
+        final byte[] output = new byte[(int) outputLength];
+        System.arraycopy(header(), 0, output, 0, HEADER_SIZE);
+        final int encryptedSegmentSize = segmentSize + crypt.getBlockSize();
+        final long count = segmentCount(length, segmentSize);
+        forEachSegment(0, count, new SegmentTask() {
+            @Override
+            public void run(final long index) throws GeneralSecurityException {
+                final int offset = (int) index * segmentSize;
+                encryptSegment(index, data, offset, Math.min(segmentSize, length - offset), output, HEADER_SIZE + (int) index * encryptedSegmentSize);
+            }
+        });
+        try {
+            final byte[] end = endBlock(crypt, count);
+            System.arraycopy(end, 0, output, output.length - end.length, end.length);
+        } catch (final GeneralSecurityException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+        return output;
+    }
+
+    /**
+     * 解密分段加密的資料。
+     *
+     * @param data 傳入要解密的資料
+     * @return 傳回解密後的資料
+     */
+    public byte[] decrypt(final byte[] data) {
+        final int blockSize = crypt.getBlockSize();
+        final int size = readHeader(ByteBuffer.wrap(data), blockSize);
+        final int encryptedSegmentSize = size + blockSize;
+        final int encryptedLength = data.length - HEADER_SIZE - blockSize;
+        final long count = checkEncryptedLength(encryptedLength, encryptedSegmentSize, blockSize);
+        try {
+            checkEndBlock(crypt, count, data, HEADER_SIZE + encryptedLength);
+            if (count == 0) {
+                return new byte[0];
+            }
+            // 先解密最後一個區段，才能知道明文的長度
+            final int lastOffset = HEADER_SIZE + (int) (count - 1) * encryptedSegmentSize;
+            final int lastEncryptedLength = HEADER_SIZE + encryptedLength - lastOffset;
+            final byte[] last = new byte[lastEncryptedLength];
+            final int lastLength = decryptSegment(count - 1, data, lastOffset, lastEncryptedLength, last, 0);
+            final byte[] output = new byte[(int) (count - 1) * size + lastLength];
+            System.arraycopy(last, 0, output, (int) (count - 1) * size, lastLength);
+            forEachSegment(0, count - 1, new SegmentTask() {
+                @Override
+                public void run(final long index) throws GeneralSecurityException {
+                    decryptSegment(index, data, HEADER_SIZE + (int) index * encryptedSegmentSize, encryptedSegmentSize, output, (int) index * size);
+                }
+            });
+            return output;
+        } catch (final RuntimeException ex) {
+            throw ex;
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 分段加密檔案通道。從輸入通道目前的位置讀到檔案結尾，加密後從輸出通道目前的位置開始寫入，輸出檔案會預先設定成加密後的大小。每個區段會平行加密，並直接寫到最後的位置。兩個通道都不會被關閉。
+     *
+     * @param input 傳入要加密的檔案通道
+     * @param output 傳入已加密的檔案通道
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void encrypt(final FileChannel input, final FileChannel output) throws IOException {
+        final long inputStart = input.position();
+        final long length = Math.max(input.size() - inputStart, 0);
+        final long outputStart = output.position();
+        final long outputLength = getOutputSize(length);
+        final int encryptedSegmentSize = segmentSize + crypt.getBlockSize();
+        final long count = segmentCount(length, segmentSize);
+        if (output.size() < outputStart + outputLength) {
+            output.write(ByteBuffer.allocate(1), outputStart + outputLength - 1);
+        }
+        write(output, ByteBuffer.wrap(header()), outputStart);
+        forEachSegment(0, count, new SegmentTask() {
+            @Override
+            public void run(final long index) throws IOException, GeneralSecurityException {
+                // 每個工作各自配置陣列，並在原地加密，結束後就可以被回收
+                final byte[] buffer = new byte[encryptedSegmentSize];
+                final int c = read(input, ByteBuffer.wrap(buffer, 0, (int) Math.min(segmentSize, length - index * segmentSize)), inputStart + index * segmentSize);
+                final int encryptedLength = encryptSegment(index, buffer, 0, c, buffer, 0);
+                write(output, ByteBuffer.wrap(buffer, 0, encryptedLength), outputStart + HEADER_SIZE + index * encryptedSegmentSize);
+            }
+        });
+        try {
+            final byte[] end = endBlock(crypt, count);
+            write(output, ByteBuffer.wrap(end), outputStart + outputLength - end.length);
+        } catch (final GeneralSecurityException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+        input.position(inputStart + length);
+        output.position(outputStart + outputLength);
+    }
+
+    /**
+     * 解密分段加密的檔案通道。從輸入通道目前的位置讀到檔案結尾，解密後從輸出通道目前的位置開始寫入，輸出檔案會預先設定成解密後的大小。每個區段會平行解密，並直接寫到最後的位置。兩個通道都不會被關閉。
+     *
+     * @param input 傳入要解密的檔案通道
+     * @param output 傳入已解密的檔案通道
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void decrypt(final FileChannel input, final FileChannel output) throws IOException {
+        final int blockSize = crypt.getBlockSize();
+        final long inputStart = input.position();
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        read(input, header, inputStart);
+        header.flip();
+        final int size = readHeader(header, blockSize);
+        final int encryptedSegmentSize = size + blockSize;
+        final long encryptedLength = input.size() - inputStart - HEADER_SIZE - blockSize;
+        final long count = checkEncryptedLength(encryptedLength, encryptedSegmentSize, blockSize);
+        final long outputStart = output.position();
+        long outputLength = 0;
+        try {
+            final byte[] end = new byte[blockSize];
+            read(input, ByteBuffer.wrap(end), inputStart + HEADER_SIZE + encryptedLength);
+            checkEndBlock(crypt, count, end, 0);
+            if (count > 0) {
+                // 先解密最後一個區段，才能知道明文的長度
+                final int lastEncryptedLength = (int) (encryptedLength - (count - 1) * encryptedSegmentSize);
+                final byte[] last = new byte[lastEncryptedLength];
+                read(input, ByteBuffer.wrap(last), inputStart + HEADER_SIZE + (count - 1) * encryptedSegmentSize);
+                final int lastLength = decryptSegment(count - 1, last, 0, lastEncryptedLength, last, 0);
+                outputLength = (count - 1) * size + lastLength;
+                if (output.size() < outputStart + outputLength) {
+                    output.write(ByteBuffer.allocate(1), outputStart + outputLength - 1);
+                }
+                write(output, ByteBuffer.wrap(last, 0, lastLength), outputStart + (count - 1) * size);
+            }
+        } catch (final IOException | RuntimeException ex) {
+            throw ex;
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+        forEachSegment(0, count - 1, new SegmentTask() {
+            @Override
+            public void run(final long index) throws IOException, GeneralSecurityException {
+                // 每個工作各自配置陣列，並在原地解密，結束後就可以被回收
+                final byte[] buffer = new byte[encryptedSegmentSize];
+                read(input, ByteBuffer.wrap(buffer), inputStart + HEADER_SIZE + index * encryptedSegmentSize);
+                final int length = decryptSegment(index, buffer, 0, encryptedSegmentSize, buffer, 0);
+                write(output, ByteBuffer.wrap(buffer, 0, length), outputStart + index * size);
+            }
+        });
+        input.position(inputStart + HEADER_SIZE + encryptedLength + blockSize);
+        output.position(outputStart + outputLength);
+    }
+
+    /**
+     * 分段加密資料流。每次讀取數個區段，平行加密之後再依序寫入。完成後會關閉兩個資料流。
+     *
+     * @param inputData 傳入要加密的資料流
+     * @param outputData 傳入已加密的資料流
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void encrypt(final InputStream inputData, final OutputStream outputData) throws IOException {
+        try (final InputStream is = inputData; final OutputStream os = outputData) {
+            os.write(header());
+            final int encryptedSegmentSize = segmentSize + crypt.getBlockSize();
+            final int batch = batchSize(encryptedSegmentSize);
+            final byte[] buffer = new byte[batch * segmentSize];
+            final byte[] encrypted = new byte[batch * encryptedSegmentSize];
+            long count = 0;
+            int c;
+            while ((c = read(is, buffer, 0)) > 0) {
+                final int length = c;
+                final long first = count;
+                final long segments = segmentCount(length, segmentSize);
+                forEachSegment(0, segments, new SegmentTask() {
+                    @Override
+                    public void run(final long index) throws GeneralSecurityException {
+                        final int offset = (int) index * segmentSize;
+                        encryptSegment(first + index, buffer, offset, Math.min(segmentSize, length - offset), encrypted, (int) index * encryptedSegmentSize);
+                    }
+                });
+                os.write(encrypted, 0, (int) encryptedLength(length, segmentSize));
+                count += segments;
+                if (length < buffer.length) {
+                    break;
+                }
+            }
+            os.write(endBlock(crypt, count));
+            os.flush();
+        } catch (final IOException | RuntimeException ex) {
+            throw ex;
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 解密分段加密的資料流。每次讀取數個區段，平行解密之後再依序寫入。讀到資料流的結尾時才會檢查結束區塊，因此資料不完整時，前面的區段已經被寫入，之後才會拋出例外。完成後會關閉兩個資料流。
+     *
+     * @param inputData 傳入要解密的資料流
+     * @param outputData 傳入已解密的資料流
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public void decrypt(final InputStream inputData, final OutputStream outputData) throws IOException {
+        try (final InputStream is = inputData; final OutputStream os = outputData) {
+            final int blockSize = crypt.getBlockSize();
+            final byte[] header = new byte[HEADER_SIZE];
+            final int size = readHeader(ByteBuffer.wrap(header, 0, read(is, header, 0)), blockSize);
+            final int encryptedSegmentSize = size + blockSize;
+            final int batch = batchSize(encryptedSegmentSize);
+            final int batchLength = batch * encryptedSegmentSize;
+            // 多讀一個區塊，才能在資料流結束時留下結束區塊
+            final byte[] buffer = new byte[batchLength + blockSize];
+            final byte[] decrypted = new byte[batch * size];
+            long base = 0;
+            int pending = 0;
+            while (true) {
+                final int c = pending + read(is, buffer, pending);
+                if (c < buffer.length) {
+                    final int length = c - blockSize;
+                    final long count = checkEncryptedLength(length, encryptedSegmentSize, blockSize);
+                    checkEndBlock(crypt, base + count, buffer, length);
+                    os.write(decrypted, 0, decryptBatch(base, buffer, length, size, decrypted));
+                    break;
+                }
+                os.write(decrypted, 0, decryptBatch(base, buffer, batchLength, size, decrypted));
+                System.arraycopy(buffer, batchLength, buffer, 0, blockSize);
+                pending = blockSize;
+                base += batch;
+            }
+            os.flush();
+        } catch (final IOException | RuntimeException ex) {
+            throw ex;
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * 解密陣列中連續的數個區段，除了最後一個區段以外都會平行解密。
+     *
+     * @param first 傳入第一個區段的索引
+     * @param buffer 傳入存放密文的陣列
+     * @param length 傳入密文的長度
+     * @param size 傳入區段大小
+     * @param decrypted 傳入存放明文的陣列
+     * @return 傳回明文的長度
+     * @throws java.security.GeneralSecurityException 當解密時發生問題，會拋出這個例外
+     */
+    private int decryptBatch(final long first, final byte[] buffer, final int length, final int size, final byte[] decrypted) throws GeneralSecurityException {
+        final int encryptedSegmentSize = size + crypt.getBlockSize();
+        final long count = checkEncryptedLength(length, encryptedSegmentSize, crypt.getBlockSize());
+        if (count == 0) {
+            return 0;
+        }
+        // 只有最後一個區段的明文可能比區段大小短，要另外處理
+        forEachSegment(0, count - 1, new SegmentTask() {
+            @Override
+            public void run(final long index) throws GeneralSecurityException {
+                decryptSegment(first + index, buffer, (int) index * encryptedSegmentSize, encryptedSegmentSize, decrypted, (int) index * size);
+            }
+        });
+        final int lastOffset = (int) (count - 1) * encryptedSegmentSize;
+        return (int) (count - 1) * size + decryptSegment(first + count - 1, buffer, lastOffset, length - lastOffset, decrypted, (int) (count - 1) * size);
+    }
+
+    /**
+     * 計算處理資料流時，每次要讀取的區段數量。
+     *
+     * @param encryptedSegmentSize 傳入完整區段的密文長度
+     * @return 傳回區段數量
+     */
+    private int batchSize(final int encryptedSegmentSize) {
+        final int parallelism = (pool != null ? pool : Batches.getDefaultPool()).getParallelism();
+        return Math.max(1, Math.min(parallelism * 2, MAX_BATCH_SIZE / encryptedSegmentSize));
+    }
+
+    /**
+     * 開啟可以隨機讀取的通道，讀取時只會解密涵蓋所要求之範圍的區塊。
+     *
+     * @param source 傳入分段加密的資料來源，從目前的位置開始讀取，關閉通道時也會一起被關閉
+     * @return 傳回以明文為單位的唯讀通道
+     * @throws java.io.IOException 當輸入輸出處理時發生問題，會拋出這個例外
+     */
+    public SegmentedChannel newReadChannel(final SeekableByteChannel source) throws IOException {
+        return new SegmentedChannel(crypt, source);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright 2015-2018 magiclen.org
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.magiclen.magiccrypt.lib;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * 分段的計數器，給會被很多執行緒同時累加的統計數字使用。</p>
+ *
+ * <p>
+ * 不同的執行緒會盡量累加不同的分段，分段之間也會保持間隔，避免位在同一個快取行上。讀取時才將所有分段加總，因此讀取到的數值不一定是某一瞬間的精確數值。</p>
+ *
+ * @author Magic Len
+ */
+public final class StripedCounter {
+
+    // -----類別常數-----
+    /**
+     * 計數器的分段數量。
+     */
+    private static final int STRIPES = 16;
+    /**
+     * 分段之間的間隔，避免不同的分段位在同一個快取行上。
+     */
+    private static final int STRIPE_PADDING = 8;
+
+    // -----物件常數-----
+    /**
+     * 存放各分段的陣列。
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+
+    // -----類別方法-----
+    /**
+     * 取得目前執行緒的探測值，讓不同的執行緒盡量使用不同的位置。
+     *
+     * @return 傳回非負整數
+     */
+    public static int probe() {
+        final long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 33);
+    }
+
+    // -----物件方法-----
+    /**
+     * 將目前執行緒對應的分段加1。
+     */
+    public void increment() {
+        increment(probe());
+    }
+
+    /**
+     * 將探測值對應的分段加1。已經取得探測值時使用，可以省去再計算一次。
+     *
+     * @param probe 傳入probe方法傳回的探測值
+     */
+    public void increment(final int probe) {
+        counts.incrementAndGet((probe % STRIPES) * STRIPE_PADDING);
+    }
+
+    /**
+     * 加總所有分段。
+     *
+     * @return 傳回目前的計數
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; ++i) {
+            sum += counts.get(i * STRIPE_PADDING);
+        }
+        return sum;
+    }
+}